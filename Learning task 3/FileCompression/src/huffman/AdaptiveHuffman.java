@@ -0,0 +1,201 @@
+package huffman;
+
+import java.io.*;
+
+public class AdaptiveHuffman implements EntropyCoder {
+
+    public static final int ALPHABET = BitUtils.DIFF_BYTES;
+    public static final int SYMBOL_BITS = 8;
+    private static final int NODES = 2 * ALPHABET + 1;
+    private static final int INTERNAL = -1;
+    private static final int NYT = -2;
+    private int[] weight = new int[NODES];
+    private int[] parent = new int[NODES];
+    private int[] left = new int[NODES];
+    private int[] right = new int[NODES];
+    private int[] symbol = new int[NODES];
+    private int[] leaves = new int[ALPHABET];
+    private int[] path = new int[NODES];
+    private int root = NODES - 1;
+    private int nyt = root;
+
+    public AdaptiveHuffman() {
+        for (int i = 0; i < ALPHABET; i++) {
+            leaves[i] = -1;
+        }
+
+        parent[root] = -1;
+        left[root] = -1;
+        right[root] = -1;
+        symbol[root] = NYT;
+    }
+
+    public int getId() {
+        return HZIPFormat.ADAPTIVE;
+    }
+
+    public byte[] encode(byte[] data, int off, int len) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(len / 2 + 16);
+        BitOutputStream bout = new BitOutputStream(bytes);
+
+        for (int i = off; i < off + len; i++) {
+            encode(data[i] & 0xff, bout);
+        }
+
+        bout.close();
+
+        return bytes.toByteArray();
+    }
+
+    public byte[] encode(byte[] data, int off, int len, HZIPStats stats) throws IOException {
+        return encode(data, off, len);
+    }
+
+    public byte[] decode(byte[] payload, int len) throws IOException {
+        BitInputStream bin = new BitInputStream(new ByteArrayInputStream(payload));
+        byte[] result = new byte[len];
+
+        for (int i = 0; i < len; i++) {
+            int decode = decode(bin);
+
+            if (decode < 0) {
+                throw new IOException("Block ends after " + i + " of " + len + " bytes");
+            }
+
+            result[i] = (byte) decode;
+        }
+
+        return result;
+    }
+
+    public void encode(int ch, BitOutputStream out) throws IOException {
+        int node = leaves[ch];
+
+        if (node == -1) {
+            writePath(nyt, out);
+            out.writeBits(ch, SYMBOL_BITS);
+            node = split(ch);
+        } else {
+            writePath(node, out);
+        }
+
+        update(node);
+    }
+
+    public int decode(BitInputStream in) throws IOException {
+        int node = root;
+
+        while (symbol[node] == INTERNAL) {
+            int bit = in.readBit();
+
+            if (bit == -1) {
+                return -1;
+            }
+
+            node = bit == 0 ? left[node] : right[node];
+        }
+
+        int ch;
+
+        if (symbol[node] == NYT) {
+            ch = (int) in.readBits(SYMBOL_BITS);
+
+            if (ch == -1) {
+                return -1;
+            }
+
+            if (ch >= ALPHABET || leaves[ch] != -1) {
+                throw new IOException("Decoding error: invalid new symbol " + ch);
+            }
+
+            node = split(ch);
+        } else {
+            ch = symbol[node];
+        }
+
+        update(node);
+
+        return ch;
+    }
+
+    private void writePath(int node, BitOutputStream out) throws IOException {
+        int length = 0;
+
+        while (node != root) {
+            int up = parent[node];
+            path[length++] = left[up] == node ? 0 : 1;
+            node = up;
+        }
+
+        while (length > 0) {
+            out.writeBit(path[--length]);
+        }
+    }
+
+    private int split(int ch) {
+        int leaf = nyt - 1;
+        int newNyt = nyt - 2;
+        symbol[nyt] = INTERNAL;
+        left[nyt] = newNyt;
+        right[nyt] = leaf;
+        initLeaf(leaf, nyt, ch);
+        initLeaf(newNyt, nyt, NYT);
+        leaves[ch] = leaf;
+        nyt = newNyt;
+
+        return leaf;
+    }
+
+    private void initLeaf(int node, int up, int ch) {
+        weight[node] = 0;
+        parent[node] = up;
+        left[node] = -1;
+        right[node] = -1;
+        symbol[node] = ch;
+    }
+
+    private void update(int node) {
+        while (node != -1) {
+            int leader = node;
+
+            while (leader + 1 < NODES && weight[leader + 1] == weight[node]) {
+                leader++;
+            }
+
+            if (leader != node && leader != parent[node] && leader != root) {
+                swap(node, leader);
+                node = leader;
+            }
+
+            weight[node]++;
+            node = parent[node];
+        }
+    }
+
+    private void swap(int a, int b) {
+        int tmp = left[a];
+        left[a] = left[b];
+        left[b] = tmp;
+        tmp = right[a];
+        right[a] = right[b];
+        right[b] = tmp;
+        tmp = symbol[a];
+        symbol[a] = symbol[b];
+        symbol[b] = tmp;
+        tmp = weight[a];
+        weight[a] = weight[b];
+        weight[b] = tmp;
+        relink(a);
+        relink(b);
+    }
+
+    private void relink(int node) {
+        if (symbol[node] == INTERNAL) {
+            parent[left[node]] = node;
+            parent[right[node]] = node;
+        } else if (symbol[node] >= 0) {
+            leaves[symbol[node]] = node;
+        }
+    }
+
+}
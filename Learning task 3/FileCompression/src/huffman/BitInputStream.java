@@ -2,38 +2,105 @@ package huffman;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 
 public class BitInputStream {
 
+    public static final int MAX_PEEK_BITS = 56;
+    private static final int BLOCK_SIZE = 1 << 16;
+    private static final int BYTES_PER_LONG = 8;
     private InputStream in;
-    private int buffer;
-    private int bufferPos;
+    private ByteBuffer block;
+    private long buffer;
+    private int bufferBits;
 
     public BitInputStream(InputStream is) {
         in = is;
-        bufferPos = BitUtils.BITS_PER_BYTES;
-    }
-
-    private static int getBit(int pack, int pos) {
-        return (pack & (1 << pos)) != 0 ? 1 : 0;
+        block = ByteBuffer.allocate(BLOCK_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        block.flip();
+        buffer = 0;
+        bufferBits = 0;
     }
 
     public int readBit() throws IOException {
-        if (bufferPos == BitUtils.BITS_PER_BYTES) {
-            buffer = in.read();
+        if (bufferBits == 0) {
+            refill(1);
 
-            if (buffer == -1) {
+            if (bufferBits == 0) {
                 return -1;
             }
+        }
+
+        int bit = (int) buffer & 1;
+        skipBits(1);
 
-            bufferPos = 0;
+        return bit;
+    }
+
+    public long readBits(int count) throws IOException {
+        long bits = peekBits(count);
+
+        if (bufferBits < count) {
+            return -1;
         }
 
-        return getBit(buffer, bufferPos++);
+        skipBits(count);
+
+        return bits;
+    }
+
+    public long peekBits(int count) throws IOException {
+        if (bufferBits < count) {
+            refill(count);
+        }
+
+        return buffer & ((1L << count) - 1);
+    }
+
+    public void skipBits(int count) {
+        buffer >>>= count;
+        bufferBits -= count;
+    }
+
+    public void alignToByte() {
+        skipBits(bufferBits % BitUtils.BITS_PER_BYTES);
+    }
+
+    public int bufferedBits() {
+        return bufferBits;
     }
 
     public void close() throws IOException {
         in.close();
     }
 
+    private void refill(int count) throws IOException {
+        if (block.remaining() >= BYTES_PER_LONG) {
+            buffer |= block.getLong(block.position()) << bufferBits;
+            int bytes = (Long.SIZE - 1 - bufferBits) / BitUtils.BITS_PER_BYTES;
+            block.position(block.position() + bytes);
+            bufferBits += bytes * BitUtils.BITS_PER_BYTES;
+
+            return;
+        }
+
+        while (bufferBits <= MAX_PEEK_BITS) {
+            if (!block.hasRemaining() && (bufferBits >= count || !fill())) {
+                return;
+            }
+
+            buffer |= (block.get() & 0xffL) << bufferBits;
+            bufferBits += BitUtils.BITS_PER_BYTES;
+        }
+    }
+
+    private boolean fill() throws IOException {
+        block.clear();
+        int read = in.read(block.array(), 0, block.capacity());
+        block.limit(Math.max(read, 0));
+
+        return read > 0;
+    }
+
 }
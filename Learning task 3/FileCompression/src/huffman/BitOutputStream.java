@@ -2,24 +2,37 @@ package huffman;
 
 import java.io.IOException;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.WritableByteChannel;
 
 public class BitOutputStream {
 
+    private static final int BLOCK_SIZE = 1 << 16;
+    private static final int BYTES_PER_LONG = 8;
     private OutputStream out;
-    private int buffer;
-    private int bufferPos;
+    private WritableByteChannel channel;
+    private ByteBuffer block;
+    private long buffer;
+    private int bufferBits;
+    private long bytesWritten;
 
     public BitOutputStream(OutputStream os) {
-        bufferPos = 0;
-        buffer = 0;
         out = os;
+        block = ByteBuffer.allocate(BLOCK_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        buffer = 0;
+        bufferBits = 0;
+    }
+
+    public BitOutputStream(WritableByteChannel channel) {
+        this.channel = channel;
+        block = ByteBuffer.allocateDirect(BLOCK_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        buffer = 0;
+        bufferBits = 0;
     }
 
     public void writeBit(int val) throws IOException {
-        buffer = setBit(buffer, bufferPos++, val);
-        if (bufferPos == BitUtils.BITS_PER_BYTES) {
-            flush();
-        }
+        writeBits(val & 1, 1);
     }
 
     public void writeBits(int[] val) throws IOException {
@@ -28,27 +41,70 @@ public class BitOutputStream {
         }
     }
 
-    public void flush() throws IOException {
-        if (bufferPos == 0) {
+    public void writeBits(long bits, int count) throws IOException {
+        if (count == 0) {
             return;
         }
 
-        out.write(buffer);
-        bufferPos = 0;
+        buffer |= bits << bufferBits;
+        int total = bufferBits + count;
+
+        if (total >= Long.SIZE) {
+            if (block.remaining() < BYTES_PER_LONG) {
+                writeBlock();
+            }
+
+            block.putLong(buffer);
+            buffer = bufferBits == 0 ? 0 : bits >>> (Long.SIZE - bufferBits);
+            total -= Long.SIZE;
+        }
+
+        bufferBits = total;
+    }
+
+    public void flush() throws IOException {
+        while (bufferBits > 0) {
+            if (!block.hasRemaining()) {
+                writeBlock();
+            }
+
+            block.put((byte) buffer);
+            buffer >>>= BitUtils.BITS_PER_BYTES;
+            bufferBits = Math.max(bufferBits - BitUtils.BITS_PER_BYTES, 0);
+        }
+
         buffer = 0;
+        writeBlock();
+    }
+
+    public long getBytesWritten() {
+        return bytesWritten;
     }
 
     public void close() throws IOException {
         flush();
-        out.close();
+
+        if (channel != null) {
+            channel.close();
+        } else {
+            out.close();
+        }
     }
 
-    private int setBit(int pack, int pos, int val) {
-        if (val == 1) {
-            pack |= (val << pos);
+    private void writeBlock() throws IOException {
+        bytesWritten += block.position();
+
+        if (channel != null) {
+            block.flip();
+
+            while (block.hasRemaining()) {
+                channel.write(block);
+            }
+        } else {
+            out.write(block.array(), 0, block.position());
         }
 
-        return pack;
+        block.clear();
     }
 
 }
@@ -5,5 +5,6 @@ public interface BitUtils {
     public static final int BITS_PER_BYTES = 8;
     public static final int DIFF_BYTES = 256;
     public static final int EOF = 256;
+    public static final int MAP_WINDOW = 1 << 30;
 
 }
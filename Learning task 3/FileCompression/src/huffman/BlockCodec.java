@@ -0,0 +1,182 @@
+package huffman;
+
+import java.io.*;
+import java.util.concurrent.ForkJoinTask;
+import java.util.zip.CRC32C;
+import java.util.concurrent.RecursiveTask;
+
+public class BlockCodec {
+
+    public static byte[] encode(byte[] data, int off, int len) throws IOException {
+        return encode(data, off, len, null);
+    }
+
+    public static byte[] encode(byte[] data, int off, int len, HuffmanTree sharedTree) throws IOException {
+        return encode(data, off, len, sharedTree, null);
+    }
+
+    static byte[] encode(byte[] data, int off, int len, HuffmanTree sharedTree, HZIPStats stats)
+            throws IOException {
+        HuffmanTree codeTree = sharedTree;
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(len / 2 + 64);
+        DataOutputStream dout = new DataOutputStream(bytes);
+
+        if (codeTree == null) {
+            CharCounter counts = new CharCounter();
+            counts.count(data, off, len);
+            codeTree = new HuffmanTree(counts, HuffmanTree.MAX_CODE_LENGTH);
+            codeTree.writeEncodingTable(dout);
+
+            if (stats != null) {
+                stats.setTree(codeTree);
+                stats.addSymbols(counts);
+            }
+        }
+
+        BitOutputStream bout = new BitOutputStream(dout);
+
+        for (int i = off; i < off + len; i++) {
+            int symbol = data[i] & 0xff;
+            int length = codeTree.getCodeLength(symbol);
+
+            if (length == 0) {
+                throw new IOException("Character " + symbol + " is not in the encoding table");
+            }
+
+            bout.writeBits(codeTree.getCodeBits(symbol), length);
+        }
+
+        bout.close();
+
+        return bytes.toByteArray();
+    }
+
+    public static byte[] decode(byte[] payload, int len) throws IOException {
+        return decode(payload, len, (HuffmanDecoder) null);
+    }
+
+    public static byte[] decode(byte[] payload, int len, HuffmanTree sharedTree) throws IOException {
+        return decode(payload, len, sharedTree != null ? new HuffmanDecoder(sharedTree) : null);
+    }
+
+    static byte[] decode(byte[] payload, int len, HuffmanDecoder sharedDecoder) throws IOException {
+        DataInputStream din = new DataInputStream(new ByteArrayInputStream(payload));
+        HuffmanDecoder decoder = sharedDecoder;
+
+        if (decoder == null) {
+            HuffmanTree codeTree = new HuffmanTree();
+            codeTree.readEncodingTable(din);
+            decoder = new HuffmanDecoder(codeTree);
+        }
+
+        BitInputStream bin = new BitInputStream(din);
+        byte[] result = new byte[len];
+
+        for (int i = 0; i < len; i++) {
+            int decode = decoder.decode(bin);
+
+            if (decode < 0) {
+                throw new EOFException("Block ends after " + i + " of " + len + " bytes");
+            }
+
+            result[i] = (byte) decode;
+        }
+
+        return result;
+    }
+
+    public static int maxPayloadLength(int blockSize) {
+        return 2 * blockSize + 1024;
+    }
+
+    public static int checksum(byte[] payload) {
+        CRC32C crc = new CRC32C();
+        crc.update(payload, 0, payload.length);
+
+        return (int) crc.getValue();
+    }
+
+    public static void writeVarint(DataOutputStream out, int value) throws IOException {
+        while ((value & ~0x7f) != 0) {
+            out.writeByte(value & 0x7f | 0x80);
+            value >>>= 7;
+        }
+
+        out.writeByte(value);
+    }
+
+    public static int readVarint(DataInputStream in) throws IOException {
+        int value = 0;
+
+        for (int shift = 0; shift < Integer.SIZE; shift += 7) {
+            int b = in.readUnsignedByte();
+            value |= (b & 0x7f) << shift;
+
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+
+        throw new IOException("Corrupt length field");
+    }
+
+    public static byte[] join(ForkJoinTask<byte[]> task) throws IOException {
+        try {
+            return task.join();
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    static class EncodeTask extends RecursiveTask<byte[]> {
+
+        private static final long serialVersionUID = 1L;
+        private EntropyCoder coder;
+        private byte[] data;
+        private int len;
+        private HZIPStats stats = new HZIPStats(true);
+
+        EncodeTask(EntropyCoder coder, byte[] data, int len) {
+            this.coder = coder;
+            this.data = data;
+            this.len = len;
+        }
+
+        protected byte[] compute() {
+            try {
+                return coder.encode(data, 0, len, stats);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        HZIPStats getStats() {
+            return stats;
+        }
+
+    }
+
+    static class DecodeTask extends RecursiveTask<byte[]> {
+
+        private static final long serialVersionUID = 1L;
+        private EntropyCoder coder;
+        private byte[] payload;
+        private int len;
+
+        DecodeTask(EntropyCoder coder, byte[] payload, int len) {
+            this.coder = coder;
+            this.payload = payload;
+            this.len = len;
+        }
+
+        protected byte[] compute() {
+            try {
+                return coder.decode(payload, len);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+    }
+
+}
@@ -2,30 +2,178 @@ package huffman;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
 
 public class CharCounter {
 
-    private int[] theCounts = new int[BitUtils.DIFF_BYTES + 1];
+    private static final int CHUNK_SIZE = 1 << 18;
+    private static final int LANES = 4;
+    private long[] theCounts = new long[BitUtils.DIFF_BYTES + 1];
 
     public CharCounter() {
 
     }
 
     public CharCounter(InputStream input) throws IOException {
-        int ch;
-        while ((ch = input.read()) != -1) {
-            theCounts[ch]++;
+        byte[] buffer = new byte[1 << 16];
+        int read;
+
+        while ((read = input.read(buffer)) != -1) {
+            count(buffer, 0, read);
+        }
+
+        theCounts[HuffmanTree.END] = 1;
+    }
+
+    public CharCounter(FileChannel channel) throws IOException {
+        this(channel, null);
+    }
+
+    public CharCounter(FileChannel channel, ForkJoinPool pool) throws IOException {
+        long size = channel.size();
+
+        for (long pos = 0; pos < size; pos += BitUtils.MAP_WINDOW) {
+            count(channel.map(FileChannel.MapMode.READ_ONLY, pos, Math.min(BitUtils.MAP_WINDOW, size - pos)), pool);
+        }
+
+        theCounts[HuffmanTree.END] = 1;
+    }
+
+    public void count(ByteBuffer data) {
+        count(data, null);
+    }
+
+    public void count(ByteBuffer data, ForkJoinPool pool) {
+        if (data.hasArray()) {
+            count(data.array(), data.arrayOffset() + data.position(), data.remaining(), pool);
+
+            return;
+        }
+
+        ByteBuffer view = data.slice().order(ByteOrder.LITTLE_ENDIAN);
+        merge(pool == null ? countBuffer(view, 0, view.limit()) : pool.invoke(new CountTask(view, null, 0, view.limit())));
+    }
+
+    public void count(byte[] data, int off, int len) {
+        count(data, off, len, null);
+    }
+
+    public void count(byte[] data, int off, int len, ForkJoinPool pool) {
+        merge(pool == null ? countArray(data, off, off + len) : pool.invoke(new CountTask(null, data, off, off + len)));
+    }
+
+    public long getCount(int ch) {
+        return theCounts[ch];
+    }
+
+    public void setCount(int ch, long count) {
+        theCounts[ch] = count;
+    }
+
+    private void merge(long[] counts) {
+        for (int i = 0; i < counts.length; i++) {
+            theCounts[i] += counts[i];
+        }
+    }
+
+    private static long[] countArray(byte[] data, int from, int to) {
+        long[] counts = new long[BitUtils.DIFF_BYTES];
+
+        for (int start = from; start < to; start += CHUNK_SIZE) {
+            int end = Math.min(to, start + CHUNK_SIZE);
+            int[][] lanes = new int[LANES][BitUtils.DIFF_BYTES];
+            int i = start;
+
+            for (; i + LANES <= end; i += LANES) {
+                lanes[0][data[i] & 0xff]++;
+                lanes[1][data[i + 1] & 0xff]++;
+                lanes[2][data[i + 2] & 0xff]++;
+                lanes[3][data[i + 3] & 0xff]++;
+            }
+
+            for (; i < end; i++) {
+                lanes[0][data[i] & 0xff]++;
+            }
+
+            addLanes(counts, lanes);
+        }
+
+        return counts;
+    }
+
+    private static long[] countBuffer(ByteBuffer data, int from, int to) {
+        long[] counts = new long[BitUtils.DIFF_BYTES];
+
+        for (int start = from; start < to; start += CHUNK_SIZE) {
+            int end = Math.min(to, start + CHUNK_SIZE);
+            int[][] lanes = new int[LANES][BitUtils.DIFF_BYTES];
+            int i = start;
+
+            for (; i + 8 <= end; i += 8) {
+                long word = data.getLong(i);
+                lanes[0][(int) word & 0xff]++;
+                lanes[1][(int) (word >>> 8) & 0xff]++;
+                lanes[2][(int) (word >>> 16) & 0xff]++;
+                lanes[3][(int) (word >>> 24) & 0xff]++;
+                lanes[0][(int) (word >>> 32) & 0xff]++;
+                lanes[1][(int) (word >>> 40) & 0xff]++;
+                lanes[2][(int) (word >>> 48) & 0xff]++;
+                lanes[3][(int) (word >>> 56)]++;
+            }
+
+            for (; i < end; i++) {
+                lanes[0][data.get(i) & 0xff]++;
+            }
+
+            addLanes(counts, lanes);
         }
 
-        theCounts[HuffmanTree.END & 0xff] = 1;
+        return counts;
     }
 
-    public int getCount(int ch) {
-        return theCounts[ch & 0xff];
+    private static void addLanes(long[] counts, int[][] lanes) {
+        for (int ch = 0; ch < counts.length; ch++) {
+            counts[ch] += lanes[0][ch] + lanes[1][ch] + lanes[2][ch] + lanes[3][ch];
+        }
     }
 
-    public void setCount(int ch, int count) {
-        theCounts[ch & 0xff] = count;
+    private static class CountTask extends RecursiveTask<long[]> {
+
+        private static final long serialVersionUID = 1L;
+        private final ByteBuffer buffer;
+        private final byte[] array;
+        private final int from;
+        private final int to;
+
+        CountTask(ByteBuffer buffer, byte[] array, int from, int to) {
+            this.buffer = buffer;
+            this.array = array;
+            this.from = from;
+            this.to = to;
+        }
+
+        protected long[] compute() {
+            if (to - from <= CHUNK_SIZE) {
+                return array != null ? countArray(array, from, to) : countBuffer(buffer, from, to);
+            }
+
+            int mid = from + (to - from) / 2;
+            CountTask left = new CountTask(buffer, array, from, mid);
+            left.fork();
+            long[] counts = new CountTask(buffer, array, mid, to).compute();
+            long[] other = left.join();
+
+            for (int i = 0; i < counts.length; i++) {
+                counts[i] += other[i];
+            }
+
+            return counts;
+        }
+
     }
 
 }
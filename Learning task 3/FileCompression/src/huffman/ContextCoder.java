@@ -0,0 +1,172 @@
+package huffman;
+
+import java.io.*;
+
+public class ContextCoder implements EntropyCoder {
+
+    private static final int CONTEXTS = BitUtils.DIFF_BYTES;
+    private static final int TABLE_COST = 48;
+
+    public int getId() {
+        return HZIPFormat.CONTEXT_CODER;
+    }
+
+    public byte[] encode(byte[] data, int off, int len) throws IOException {
+        return encode(data, off, len, null);
+    }
+
+    public byte[] encode(byte[] data, int off, int len, HZIPStats stats) throws IOException {
+        long[][] counts = new long[CONTEXTS][BitUtils.DIFF_BYTES];
+        int prev = 0;
+
+        for (int i = off; i < off + len; i++) {
+            int symbol = data[i] & 0xff;
+            counts[prev][symbol]++;
+            prev = symbol;
+        }
+
+        boolean[] own = selectContexts(counts, len);
+        long[] sharedCounts = new long[BitUtils.DIFF_BYTES];
+        boolean hasShared = false;
+        byte[] bitmap = new byte[CONTEXTS / 8];
+
+        for (int c = 0; c < CONTEXTS; c++) {
+            if (own[c]) {
+                bitmap[c >>> 3] |= (byte) (1 << (c & 7));
+                continue;
+            }
+
+            for (int s = 0; s < BitUtils.DIFF_BYTES; s++) {
+                sharedCounts[s] += counts[c][s];
+                hasShared |= counts[c][s] > 0;
+            }
+        }
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(len / 2 + 128);
+        DataOutputStream dout = new DataOutputStream(bytes);
+        dout.write(bitmap);
+        dout.writeByte(hasShared ? 1 : 0);
+        HuffmanTree[] trees = new HuffmanTree[CONTEXTS];
+        HuffmanTree sharedTree = null;
+
+        if (hasShared) {
+            sharedTree = new HuffmanTree(sharedCounts, HuffmanTree.MAX_CODE_LENGTH);
+            sharedTree.writeEncodingTable(dout);
+        }
+
+        for (int c = 0; c < CONTEXTS; c++) {
+            if (own[c]) {
+                trees[c] = new HuffmanTree(counts[c], HuffmanTree.MAX_CODE_LENGTH);
+                trees[c].writeEncodingTable(dout);
+            } else {
+                trees[c] = sharedTree;
+            }
+
+            if (stats != null && trees[c] != null) {
+                stats.setTree(trees[c]);
+                stats.addSymbols(counts[c]);
+            }
+        }
+
+        BitOutputStream bout = new BitOutputStream(dout);
+        prev = 0;
+
+        for (int i = off; i < off + len; i++) {
+            int symbol = data[i] & 0xff;
+            HuffmanTree tree = trees[prev];
+            bout.writeBits(tree.getCodeBits(symbol), tree.getCodeLength(symbol));
+            prev = symbol;
+        }
+
+        bout.close();
+
+        return bytes.toByteArray();
+    }
+
+    public byte[] decode(byte[] payload, int len) throws IOException {
+        DataInputStream din = new DataInputStream(new ByteArrayInputStream(payload));
+        byte[] bitmap = new byte[CONTEXTS / 8];
+        din.readFully(bitmap);
+        int hasShared = din.readUnsignedByte();
+
+        if (hasShared > 1) {
+            throw new IOException("Corrupt context block: bad shared table flag " + hasShared);
+        }
+
+        HuffmanDecoder shared = hasShared == 1 ? readDecoder(din) : null;
+        HuffmanDecoder[] decoders = new HuffmanDecoder[CONTEXTS];
+
+        for (int c = 0; c < CONTEXTS; c++) {
+            decoders[c] = (bitmap[c >>> 3] & (1 << (c & 7))) != 0 ? readDecoder(din) : shared;
+        }
+
+        BitInputStream bin = new BitInputStream(din);
+        byte[] result = new byte[len];
+        int prev = 0;
+
+        for (int i = 0; i < len; i++) {
+            HuffmanDecoder decoder = decoders[prev];
+
+            if (decoder == null) {
+                throw new IOException("Corrupt context block: no table for context " + prev);
+            }
+
+            int symbol = decoder.decode(bin);
+
+            if (symbol < 0) {
+                throw new EOFException("Block ends after " + i + " of " + len + " bytes");
+            }
+
+            result[i] = (byte) symbol;
+            prev = symbol;
+        }
+
+        return result;
+    }
+
+    private static HuffmanDecoder readDecoder(DataInputStream din) throws IOException {
+        HuffmanTree tree = new HuffmanTree(BitUtils.DIFF_BYTES);
+        tree.readEncodingTable(din);
+
+        return new HuffmanDecoder(tree);
+    }
+
+    private static boolean[] selectContexts(long[][] counts, int len) {
+        long[] order0 = new long[BitUtils.DIFF_BYTES];
+
+        for (long[] context : counts) {
+            for (int s = 0; s < BitUtils.DIFF_BYTES; s++) {
+                order0[s] += context[s];
+            }
+        }
+
+        boolean[] own = new boolean[CONTEXTS];
+
+        for (int c = 0; c < CONTEXTS; c++) {
+            long total = 0;
+            int distinct = 0;
+
+            for (long count : counts[c]) {
+                total += count;
+                distinct += count > 0 ? 1 : 0;
+            }
+
+            double saving = 0;
+
+            for (int s = 0; s < BitUtils.DIFF_BYTES; s++) {
+                if (counts[c][s] > 0) {
+                    saving += counts[c][s] * log2((double) counts[c][s] * len / ((double) order0[s] * total));
+                }
+            }
+
+            own[c] = saving > TABLE_COST + 4 * distinct;
+        }
+
+        return own;
+    }
+
+    private static double log2(double x) {
+        return Math.log(x) / Math.log(2);
+    }
+
+}
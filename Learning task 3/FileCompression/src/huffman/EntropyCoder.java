@@ -0,0 +1,15 @@
+package huffman;
+
+import java.io.IOException;
+
+public interface EntropyCoder {
+
+    int getId();
+
+    byte[] encode(byte[] data, int off, int len) throws IOException;
+
+    byte[] encode(byte[] data, int off, int len, HZIPStats stats) throws IOException;
+
+    byte[] decode(byte[] payload, int len) throws IOException;
+
+}
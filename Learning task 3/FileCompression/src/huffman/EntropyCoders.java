@@ -0,0 +1,34 @@
+package huffman;
+
+import java.io.IOException;
+import java.util.HashMap;
+
+public class EntropyCoders {
+
+    private static final HashMap<Integer, EntropyCoder> coders = new HashMap<Integer, EntropyCoder>();
+
+    static {
+        register(new HuffmanCoder());
+        register(new RansCoder());
+        register(new ContextCoder());
+    }
+
+    public static synchronized void register(EntropyCoder coder) {
+        if (coder.getId() < 0 || coder.getId() > 0xff) {
+            throw new IllegalArgumentException("Coder id must fit in a byte: " + coder.getId());
+        }
+
+        coders.put(coder.getId(), coder);
+    }
+
+    public static synchronized EntropyCoder get(int id) throws IOException {
+        EntropyCoder coder = coders.get(id);
+
+        if (coder == null) {
+            throw new IOException("Unknown entropy coder " + id);
+        }
+
+        return coder;
+    }
+
+}
@@ -0,0 +1,135 @@
+package huffman;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.SeekableByteChannel;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+
+public class HZIPArchive implements Closeable {
+
+    private SeekableByteChannel channel;
+    private int blockSize;
+    private EntropyCoder coder;
+    private LinkedHashMap<String, HZIPArchiveEntry> entries = new LinkedHashMap<String, HZIPArchiveEntry>();
+
+    public HZIPArchive(SeekableByteChannel channel) throws IOException {
+        this.channel = channel;
+        DataInputStream din = openAt(0);
+
+        if (din.readUnsignedByte() != HZIPFormat.MAGIC || din.readUnsignedByte() != HZIPFormat.ARCHIVE) {
+            throw new IOException("Not an HZIP archive");
+        }
+
+        int version = din.readUnsignedByte();
+
+        if (version != HZIPFormat.ARCHIVE_VERSION) {
+            throw new IOException("Unsupported HZIP archive version " + version);
+        }
+
+        int flags = din.readUnsignedByte();
+        blockSize = din.readInt();
+
+        if (blockSize <= 0 || blockSize > HZIPFormat.MAX_BLOCK_SIZE) {
+            throw new IOException("Corrupt block size " + blockSize);
+        }
+
+        if ((flags & HZIPFormat.SHARED_TABLE) != 0) {
+            HuffmanTree sharedTree = new HuffmanTree();
+            sharedTree.readEncodingTable(din);
+            coder = new HuffmanCoder(sharedTree);
+        } else {
+            coder = EntropyCoders.get(HZIPFormat.HUFFMAN_CODER);
+        }
+
+        long size = channel.size();
+        ByteBuffer trailer = ByteBuffer.allocate(8);
+        channel.position(size - trailer.capacity());
+
+        while (trailer.hasRemaining()) {
+            if (channel.read(trailer) == -1) {
+                throw new EOFException("Archive ends before its trailer");
+            }
+        }
+
+        long directoryOffset = trailer.getLong(0);
+
+        if (directoryOffset <= 0 || directoryOffset > size - 12) {
+            throw new IOException("Corrupt archive directory offset " + directoryOffset);
+        }
+
+        din = openAt(directoryOffset);
+        int count = din.readInt();
+
+        for (int i = 0; i < count; i++) {
+            HZIPArchiveEntry entry = new HZIPArchiveEntry(din.readUTF(), din.readLong(), din.readLong(), din.readLong());
+
+            if (entry.offset < 0 || entry.offset + entry.getCompressedSize() > directoryOffset || entry.getSize() < 0) {
+                throw new IOException("Corrupt archive entry " + entry.getName());
+            }
+
+            entries.put(entry.getName(), entry);
+        }
+    }
+
+    public List<HZIPArchiveEntry> getEntries() {
+        return Collections.unmodifiableList(new ArrayList<HZIPArchiveEntry>(entries.values()));
+    }
+
+    public HZIPArchiveEntry getEntry(String name) {
+        return entries.get(name);
+    }
+
+    public void extract(HZIPArchiveEntry entry, OutputStream out) throws IOException {
+        readEntry(entry, out);
+    }
+
+    public void verify(HZIPArchiveEntry entry) throws IOException {
+        readEntry(entry, null);
+    }
+
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private void readEntry(HZIPArchiveEntry entry, OutputStream out) throws IOException {
+        DataInputStream din = openAt(entry.offset);
+        long remaining = entry.getSize();
+        int index = 0;
+
+        while (remaining > 0) {
+            int length = din.readInt();
+            int compressedLength = din.readInt();
+
+            if (length <= 0 || length > blockSize || length > remaining || compressedLength < 0
+                    || compressedLength > BlockCodec.maxPayloadLength(blockSize)) {
+                throw new IOException("Corrupt header in block " + index + " of entry " + entry.getName());
+            }
+
+            int checksum = din.readInt();
+            byte[] payload = new byte[compressedLength];
+            din.readFully(payload);
+
+            if (BlockCodec.checksum(payload) != checksum) {
+                throw new IOException("Checksum mismatch in block " + index + " of entry " + entry.getName());
+            }
+
+            if (out != null) {
+                out.write(coder.decode(payload, length));
+            }
+
+            remaining -= length;
+            index++;
+        }
+    }
+
+    private DataInputStream openAt(long offset) throws IOException {
+        channel.position(offset);
+
+        return new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel)));
+    }
+
+}
@@ -0,0 +1,29 @@
+package huffman;
+
+public class HZIPArchiveEntry {
+
+    private String name;
+    long offset;
+    long size;
+    long compressedSize;
+
+    HZIPArchiveEntry(String name, long offset, long size, long compressedSize) {
+        this.name = name;
+        this.offset = offset;
+        this.size = size;
+        this.compressedSize = compressedSize;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public long getSize() {
+        return size;
+    }
+
+    public long getCompressedSize() {
+        return compressedSize;
+    }
+
+}
@@ -0,0 +1,147 @@
+package huffman;
+
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+public class HZIPArchiveWriter implements Closeable {
+
+    private DataOutputStream dout;
+    private ForkJoinPool pool;
+    private HuffmanTree sharedTree;
+    private EntropyCoder coder;
+    private int blockSize;
+    private ArrayList<HZIPArchiveEntry> entries = new ArrayList<HZIPArchiveEntry>();
+    private HashSet<String> names = new HashSet<String>();
+    private ArrayDeque<ForkJoinTask<byte[]>> pending = new ArrayDeque<ForkJoinTask<byte[]>>();
+    private ArrayDeque<Integer> pendingLengths = new ArrayDeque<Integer>();
+    private ArrayDeque<HZIPArchiveEntry> pendingEntries = new ArrayDeque<HZIPArchiveEntry>();
+    private HZIPArchiveEntry entry;
+    private byte[] block;
+    private int blockPos;
+    private long position;
+
+    public HZIPArchiveWriter(OutputStream out, ForkJoinPool pool, HuffmanTree sharedTree) throws IOException {
+        this(out, pool, sharedTree, HZIPFormat.DEFAULT_BLOCK_SIZE);
+    }
+
+    public HZIPArchiveWriter(OutputStream out, ForkJoinPool pool, HuffmanTree sharedTree, int blockSize)
+            throws IOException {
+        if (blockSize <= 0 || blockSize > HZIPFormat.MAX_BLOCK_SIZE) {
+            throw new IllegalArgumentException("Block size must be between 1 and " + HZIPFormat.MAX_BLOCK_SIZE);
+        }
+
+        this.dout = new DataOutputStream(out);
+        this.pool = pool;
+        this.sharedTree = sharedTree;
+        this.coder = new HuffmanCoder(sharedTree);
+        this.blockSize = blockSize;
+        this.block = new byte[blockSize];
+        dout.writeByte(HZIPFormat.MAGIC);
+        dout.writeByte(HZIPFormat.ARCHIVE);
+        dout.writeByte(HZIPFormat.ARCHIVE_VERSION);
+        dout.writeByte(sharedTree != null ? HZIPFormat.SHARED_TABLE : 0);
+        dout.writeInt(blockSize);
+
+        if (sharedTree != null) {
+            sharedTree.writeEncodingTable(dout);
+        }
+
+        position = dout.size();
+    }
+
+    public void putNextEntry(String name) throws IOException {
+        if (!names.add(name)) {
+            throw new IllegalArgumentException("Duplicate entry " + name);
+        }
+
+        closeEntry();
+        entry = new HZIPArchiveEntry(name, -1, 0, 0);
+        entries.add(entry);
+    }
+
+    public void write(ByteBuffer src) throws IOException {
+        if (entry == null) {
+            throw new IllegalStateException("No current entry");
+        }
+
+        while (src.hasRemaining()) {
+            int count = Math.min(src.remaining(), blockSize - blockPos);
+            src.get(block, blockPos, count);
+            blockPos += count;
+
+            if (blockPos == blockSize) {
+                submitBlock();
+            }
+        }
+    }
+
+    public void write(byte[] b, int off, int len) throws IOException {
+        write(ByteBuffer.wrap(b, off, len));
+    }
+
+    public void closeEntry() throws IOException {
+        if (blockPos > 0) {
+            submitBlock();
+        }
+    }
+
+    public void close() throws IOException {
+        closeEntry();
+
+        while (!pending.isEmpty()) {
+            writeBlock();
+        }
+
+        long directoryOffset = position;
+        dout.writeInt(entries.size());
+
+        for (HZIPArchiveEntry next : entries) {
+            dout.writeUTF(next.getName());
+            dout.writeLong(next.offset < 0 ? directoryOffset : next.offset);
+            dout.writeLong(next.getSize());
+            dout.writeLong(next.getCompressedSize());
+        }
+
+        dout.writeLong(directoryOffset);
+        dout.close();
+    }
+
+    private void submitBlock() throws IOException {
+        if (pending.size() >= 2 * pool.getParallelism()) {
+            writeBlock();
+        }
+
+        pending.add(pool.submit(new BlockCodec.EncodeTask(coder, block, blockPos)));
+        pendingLengths.add(blockPos);
+        pendingEntries.add(entry);
+        entry.size += blockPos;
+        block = new byte[blockSize];
+        blockPos = 0;
+    }
+
+    private void writeBlock() throws IOException {
+        byte[] payload = BlockCodec.join(pending.remove());
+        int length = pendingLengths.remove();
+        HZIPArchiveEntry entry = pendingEntries.remove();
+
+        if (entry.offset < 0) {
+            entry.offset = position;
+        }
+
+        dout.writeInt(length);
+        dout.writeInt(payload.length);
+        dout.writeInt(BlockCodec.checksum(payload));
+        dout.write(payload);
+        entry.compressedSize += 12 + payload.length;
+        position += 12 + payload.length;
+    }
+
+}
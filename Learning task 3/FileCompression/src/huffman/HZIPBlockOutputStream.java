@@ -0,0 +1,149 @@
+package huffman;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.concurrent.ForkJoinPool;
+
+public class HZIPBlockOutputStream extends OutputStream implements HZIPStream {
+
+    private DataOutputStream dout;
+    private ForkJoinPool pool;
+    private EntropyCoder coder;
+    private int blockSize;
+    private byte[] block;
+    private int blockPos;
+    private ArrayDeque<BlockCodec.EncodeTask> pending = new ArrayDeque<BlockCodec.EncodeTask>();
+    private ArrayDeque<Integer> pendingLengths = new ArrayDeque<Integer>();
+    private ArrayList<Long> offsets = new ArrayList<Long>();
+    private ArrayList<Integer> lengths = new ArrayList<Integer>();
+    private long position;
+    private HZIPStats stats = new HZIPStats(true);
+
+    public HZIPBlockOutputStream(OutputStream out, ForkJoinPool pool) throws IOException {
+        this(out, pool, HZIPFormat.DEFAULT_BLOCK_SIZE);
+    }
+
+    public HZIPBlockOutputStream(OutputStream out, ForkJoinPool pool, int blockSize) throws IOException {
+        if (blockSize <= 0 || blockSize > HZIPFormat.MAX_BLOCK_SIZE) {
+            throw new IllegalArgumentException("Block size must be between 1 and " + HZIPFormat.MAX_BLOCK_SIZE);
+        }
+
+        this.dout = new DataOutputStream(stats.counting(out));
+        this.pool = pool;
+        this.coder = EntropyCoders.get(HZIPFormat.HUFFMAN_CODER);
+        this.blockSize = blockSize;
+        this.block = new byte[blockSize];
+        dout.writeByte(HZIPFormat.MAGIC);
+        dout.writeByte(HZIPFormat.BLOCKS);
+        dout.writeByte(HZIPFormat.BLOCKS_VERSION);
+        dout.writeInt(blockSize);
+        position = dout.size();
+    }
+
+    public HZIPStats getStats() {
+        return stats;
+    }
+
+    public void write(int ch) throws IOException {
+        stats.addBytesIn(1);
+        block[blockPos++] = (byte) ch;
+
+        if (blockPos == blockSize) {
+            submitBlock();
+        }
+    }
+
+    public void write(byte[] b, int off, int len) throws IOException {
+        long start = System.nanoTime();
+        stats.addBytesIn(len);
+
+        while (len > 0) {
+            int count = Math.min(len, blockSize - blockPos);
+            System.arraycopy(b, off, block, blockPos, count);
+            blockPos += count;
+            off += count;
+            len -= count;
+
+            if (blockPos == blockSize) {
+                submitBlock();
+            }
+        }
+
+        stats.addCodingNanos(System.nanoTime() - start);
+    }
+
+    public void write(ByteBuffer src) throws IOException {
+        long start = System.nanoTime();
+        stats.addBytesIn(src.remaining());
+
+        while (src.hasRemaining()) {
+            int count = Math.min(src.remaining(), blockSize - blockPos);
+            src.get(block, blockPos, count);
+            blockPos += count;
+
+            if (blockPos == blockSize) {
+                submitBlock();
+            }
+        }
+
+        stats.addCodingNanos(System.nanoTime() - start);
+    }
+
+    public void close() throws IOException {
+        long start = System.nanoTime();
+
+        if (blockPos > 0) {
+            submitBlock();
+        }
+
+        while (!pending.isEmpty()) {
+            writeBlock();
+        }
+
+        dout.writeInt(0);
+        long indexOffset = position + 4;
+        dout.writeInt(offsets.size());
+
+        for (int i = 0; i < offsets.size(); i++) {
+            dout.writeLong(offsets.get(i));
+            dout.writeInt(lengths.get(i));
+        }
+
+        dout.writeLong(indexOffset);
+        dout.close();
+        stats.addCodingNanos(System.nanoTime() - start);
+        HZIPStats.compression().merge(stats);
+    }
+
+    private void submitBlock() throws IOException {
+        if (pending.size() >= 2 * pool.getParallelism()) {
+            writeBlock();
+        }
+
+        BlockCodec.EncodeTask task = new BlockCodec.EncodeTask(coder, block, blockPos);
+        pool.submit(task);
+        pending.add(task);
+        pendingLengths.add(blockPos);
+        block = new byte[blockSize];
+        blockPos = 0;
+    }
+
+    private void writeBlock() throws IOException {
+        BlockCodec.EncodeTask task = pending.remove();
+        byte[] payload = BlockCodec.join(task);
+        stats.addSymbols(task.getStats());
+        int length = pendingLengths.remove();
+        offsets.add(position);
+        lengths.add(length);
+        dout.writeInt(length);
+        dout.writeInt(payload.length);
+        dout.writeInt(BlockCodec.checksum(payload));
+        dout.write(payload);
+        position += 12 + payload.length;
+    }
+
+}
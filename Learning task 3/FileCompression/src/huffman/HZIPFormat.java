@@ -0,0 +1,26 @@
+package huffman;
+
+public interface HZIPFormat {
+
+    public static final int MAGIC = 0x48;
+    public static final int CANONICAL_TABLE = 0x02;
+    public static final int FRAMED_TABLE = 0x03;
+    public static final int BLOCKS = 0x42;
+    public static final int ADAPTIVE = 0x41;
+    public static final int LZ = 0x4C;
+    public static final int ARCHIVE = 0x5A;
+    public static final int CODED = 0x45;
+    public static final int DICTIONARY = 0x44;
+    public static final int DICTIONARY_CODED = 0x49;
+    public static final int HUFFMAN_CODER = 0;
+    public static final int RANS_CODER = 1;
+    public static final int CONTEXT_CODER = 2;
+    public static final int ARCHIVE_VERSION = 2;
+    public static final int SHARED_TABLE = 0x01;
+    public static final int DEFAULT_FLUSH_INTERVAL = 1 << 12;
+    public static final int BLOCKS_VERSION = 2;
+    public static final int LZ_VERSION = 2;
+    public static final int DEFAULT_BLOCK_SIZE = 1 << 20;
+    public static final int MAX_BLOCK_SIZE = 1 << 26;
+
+}
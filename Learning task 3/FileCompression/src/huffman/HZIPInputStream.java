@@ -1,50 +1,395 @@
 package huffman;
 
 import java.io.DataInputStream;
+import java.io.EOFException;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.PushbackInputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
 
 public class HZIPInputStream extends InputStream {
 
     private BitInputStream bin;
-    private HuffmanTree codeTree;
+    private HuffmanDecoder decoder;
+    private int endSymbol;
+    private boolean finished;
+    private PushbackInputStream pin;
+    private DataInputStream din;
+    private ForkJoinPool pool;
+    private int blockSize;
+    private byte[] block;
+    private int blockPos;
+    private int payloadLength;
+    private boolean framed;
+    private boolean lastBlock;
+    private boolean truncated;
+    private ArrayDeque<ForkJoinTask<byte[]>> pending;
+    private EntropyCoder coder;
+    private int blockCount;
+    private HZIPStats stats = new HZIPStats(false);
+    private boolean closed;
 
     public HZIPInputStream(InputStream in) throws IOException {
-        codeTree = new HuffmanTree();
-        codeTree.readEncodingTable(new DataInputStream(in));
-        bin = new BitInputStream(in);
+        this(in, null);
+    }
+
+    public HZIPInputStream(InputStream in, ForkJoinPool pool) throws IOException {
+        long start = System.nanoTime();
+        open(in, pool);
+        stats.addBuildNanos(System.nanoTime() - start);
+    }
+
+    public HZIPStats getStats() {
+        return stats;
+    }
+
+    private void open(InputStream in, ForkJoinPool pool) throws IOException {
+        pin = new PushbackInputStream(stats.counting(in));
+        din = new DataInputStream(pin);
+        int first = pin.read();
+
+        if (first == HZIPFormat.MAGIC) {
+            int format = din.readUnsignedByte();
+
+            if (format == HZIPFormat.ADAPTIVE) {
+                startFrames(new AdaptiveHuffman());
+
+                return;
+            }
+
+            if (format == HZIPFormat.LZ) {
+                readVersion(HZIPFormat.LZ_VERSION, "LZ stream");
+                readBlockSize();
+                coder = new LZCodec(blockSize);
+
+                return;
+            }
+
+            if (format == HZIPFormat.DICTIONARY_CODED) {
+                HuffmanDictionary dictionary = HuffmanDictionary.get(din.readInt());
+                stats.setTree(dictionary.getTree());
+                startFrames(dictionary.getCoder());
+            } else if (format == HZIPFormat.CODED) {
+                coder = EntropyCoders.get(din.readUnsignedByte());
+                readBlockSize();
+            } else if (format == HZIPFormat.BLOCKS) {
+                coder = EntropyCoders.get(HZIPFormat.HUFFMAN_CODER);
+                readVersion(HZIPFormat.BLOCKS_VERSION, "block container");
+                readBlockSize();
+            } else {
+                throw new IOException("Unsupported HZIP format " + format);
+            }
+
+            this.pool = pool;
+            pending = new ArrayDeque<ForkJoinTask<byte[]>>();
+
+            return;
+        }
+
+        if (first == HZIPFormat.FRAMED_TABLE) {
+            pin.unread(HZIPFormat.CANONICAL_TABLE);
+            HuffmanTree codeTree = new HuffmanTree();
+            codeTree.readEncodingTable(din);
+            stats.setTree(codeTree);
+            startFrames(new HuffmanCoder(codeTree));
+            this.pool = pool;
+            pending = new ArrayDeque<ForkJoinTask<byte[]>>();
+
+            return;
+        }
+
+        if (first != -1) {
+            pin.unread(first);
+        }
+
+        HuffmanTree codeTree = new HuffmanTree();
+        codeTree.readEncodingTable(din);
+        stats.setTree(codeTree);
+        decoder = new HuffmanDecoder(codeTree);
+        endSymbol = codeTree.isCanonical() ? HuffmanTree.END : HuffmanTree.END & 0xff;
+        bin = new BitInputStream(pin);
     }
 
     public int read() throws IOException {
-        String bits = "";
-        int bit;
-        int decode;
+        if (block != null) {
+            if (blockPos == block.length && !nextBlock()) {
+                return -1;
+            }
 
-        while (true) {
-            bit = bin.readBit();
+            stats.addBytesOut(1);
 
-            if (bit == -1) {
+            return block[blockPos++] & 0xff;
+        }
+
+        int decode = decodeNext();
+
+        if (decode != -1) {
+            stats.addBytesOut(1);
+        }
+
+        return decode;
+    }
+
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+
+        if (block != null) {
+            if (blockPos == block.length && !nextBlock()) {
                 return -1;
             }
 
-            bits += bit;
+            int count = Math.min(len, block.length - blockPos);
+            System.arraycopy(block, blockPos, b, off, count);
+            blockPos += count;
+            stats.addBytesOut(count);
+
+            return count;
+        }
+
+        long start = System.nanoTime();
+        int count = 0;
+
+        while (count < len) {
+            int decode = decodeNext();
+
+            if (decode == -1) {
+                break;
+            }
+
+            b[off + count++] = (byte) decode;
+        }
 
-            decode = codeTree.getChar(bits);
+        stats.addBytesOut(count);
+        stats.addCodingNanos(System.nanoTime() - start);
 
-            if (decode == HuffmanTree.INCOMPLETE_CODE) {
-                continue;
-            } else if (decode == HuffmanTree.ERROR) {
-                throw new IOException("Decoding error");
-            } else if (decode == (HuffmanTree.END & 0xff)) {
+        return count == 0 ? -1 : count;
+    }
+
+    public int read(ByteBuffer dst) throws IOException {
+        if (!dst.hasRemaining()) {
+            return 0;
+        }
+
+        if (block != null) {
+            if (blockPos == block.length && !nextBlock()) {
                 return -1;
-            } else {
-                return decode;
             }
+
+            int count = Math.min(dst.remaining(), block.length - blockPos);
+            dst.put(block, blockPos, count);
+            blockPos += count;
+            stats.addBytesOut(count);
+
+            return count;
+        }
+
+        long start = System.nanoTime();
+        int count = 0;
+
+        while (dst.hasRemaining()) {
+            int decode = decodeNext();
+
+            if (decode == -1) {
+                break;
+            }
+
+            dst.put((byte) decode);
+            count++;
+        }
+
+        stats.addBytesOut(count);
+        stats.addCodingNanos(System.nanoTime() - start);
+
+        return count == 0 ? -1 : count;
+    }
+
+    public boolean hasChecksums() {
+        return block != null;
+    }
+
+    public long verify() throws IOException {
+        long total = 0;
+
+        if (block != null) {
+            long start = System.nanoTime();
+            total += block.length - blockPos;
+            blockPos = block.length;
+
+            while (pending != null && !pending.isEmpty()) {
+                total += BlockCodec.join(pending.remove()).length;
+            }
+
+            while (readPayload() != null) {
+                total += payloadLength;
+            }
+
+            if (truncated) {
+                throw new EOFException("Stream ends before its last block");
+            }
+
+            stats.addBytesOut(total);
+            stats.addCodingNanos(System.nanoTime() - start);
+
+            return total;
         }
+
+        byte[] buffer = new byte[1 << 16];
+        int read;
+
+        while ((read = read(buffer, 0, buffer.length)) != -1) {
+            total += read;
+        }
+
+        return total;
     }
 
     public void close() throws IOException {
-        bin.close();
+        din.close();
+
+        if (!closed) {
+            closed = true;
+            HZIPStats.decompression().merge(stats);
+        }
+    }
+
+    private int decodeNext() throws IOException {
+        if (finished) {
+            return -1;
+        }
+
+        int decode = decoder.decode(bin);
+
+        if (decode == -1 || decode == endSymbol) {
+            finished = true;
+
+            return -1;
+        }
+
+        return decode;
+    }
+
+    private void readVersion(int supported, String container) throws IOException {
+        int version = din.readUnsignedByte();
+
+        if (version != supported) {
+            throw new IOException("Unsupported HZIP " + container + " version " + version);
+        }
+    }
+
+    private void startFrames(EntropyCoder coder) {
+        this.coder = coder;
+        blockSize = HZIPFormat.MAX_BLOCK_SIZE;
+        framed = true;
+        block = new byte[0];
+    }
+
+    private void readBlockSize() throws IOException {
+        setBlockSize(din.readInt());
+    }
+
+    private void setBlockSize(int blockSize) throws IOException {
+        this.blockSize = blockSize;
+
+        if (blockSize <= 0 || blockSize > HZIPFormat.MAX_BLOCK_SIZE) {
+            throw new IOException("Corrupt block size " + blockSize);
+        }
+
+        block = new byte[0];
+    }
+
+    private boolean nextBlock() throws IOException {
+        long start = System.nanoTime();
+
+        try {
+            return decodeBlock();
+        } finally {
+            stats.addCodingNanos(System.nanoTime() - start);
+        }
+    }
+
+    private boolean decodeBlock() throws IOException {
+        if (pool == null) {
+            byte[] payload = readPayload();
+
+            if (payload == null) {
+                return false;
+            }
+
+            block = coder.decode(payload, payloadLength);
+        } else {
+            byte[] payload;
+
+            while (pending.size() < 2 * pool.getParallelism() && (payload = readPayload()) != null) {
+                pending.add(pool.submit(new BlockCodec.DecodeTask(coder, payload, payloadLength)));
+            }
+
+            if (pending.isEmpty()) {
+                return false;
+            }
+
+            block = BlockCodec.join(pending.remove());
+        }
+
+        blockPos = 0;
+
+        return true;
+    }
+
+    private byte[] readPayload() throws IOException {
+        if (lastBlock) {
+            return null;
+        }
+
+        int compressedLength;
+
+        if (framed) {
+            int first = pin.read();
+
+            if (first == -1) {
+                lastBlock = true;
+                truncated = true;
+
+                return null;
+            }
+
+            pin.unread(first);
+            int header = BlockCodec.readVarint(din);
+            payloadLength = header >>> 1;
+            lastBlock = (header & 1) != 0;
+            compressedLength = BlockCodec.readVarint(din);
+        } else {
+            payloadLength = din.readInt();
+
+            if (payloadLength == 0) {
+                lastBlock = true;
+
+                return null;
+            }
+
+            compressedLength = din.readInt();
+        }
+
+        if (payloadLength < 0 || payloadLength > blockSize || compressedLength < 0
+                || compressedLength > BlockCodec.maxPayloadLength(blockSize)) {
+            throw new IOException("Corrupt header in block " + blockCount);
+        }
+
+        int checksum = din.readInt();
+        byte[] payload = new byte[compressedLength];
+        din.readFully(payload);
+
+        if (BlockCodec.checksum(payload) != checksum) {
+            throw new IOException("Checksum mismatch in block " + blockCount);
+        }
+
+        blockCount++;
+
+        return payload;
     }
 
 }
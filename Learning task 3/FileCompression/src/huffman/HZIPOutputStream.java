@@ -1,37 +1,411 @@
 package huffman;
 
 import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
 
-public class HZIPOutputStream extends OutputStream {
+public class HZIPOutputStream extends OutputStream implements HZIPStream {
 
-    private ByteArrayOutputStream byteOut = new ByteArrayOutputStream();
-    private DataOutputStream dout;
+    private static final int FIRST_BLOCK_SIZE = 1 << 12;
+    private static final int CHUNK_SIZE = 1 << 16;
+    private FormatWriter writer;
+    private byte[] chunk;
+    private HZIPStats stats = new HZIPStats(true);
+    private boolean closed;
 
     public HZIPOutputStream(OutputStream out) throws IOException {
-        dout = new DataOutputStream(out);
+        writer = new TableWriter(new DataOutputStream(stats.counting(out)), stats);
+    }
+
+    public HZIPOutputStream(OutputStream out, CharCounter counts) throws IOException {
+        this(out, counts, null);
+    }
+
+    public HZIPOutputStream(OutputStream out, CharCounter counts, ForkJoinPool pool) throws IOException {
+        writer = startTable(new DataOutputStream(stats.counting(out)), counts, stats, pool);
+    }
+
+    public HZIPOutputStream(OutputStream out, int format) throws IOException {
+        if (format == HZIPFormat.LZ) {
+            writer = startLz(out, new LZCodec(HZIPFormat.DEFAULT_BLOCK_SIZE));
+        } else {
+            writer = startAdaptive(out, format, HZIPFormat.DEFAULT_FLUSH_INTERVAL);
+        }
+    }
+
+    public HZIPOutputStream(OutputStream out, int format, int flushInterval) throws IOException {
+        writer = startAdaptive(out, format, flushInterval);
+    }
+
+    public HZIPOutputStream(OutputStream out, LZCodec lz) throws IOException {
+        writer = startLz(out, lz);
+    }
+
+    public HZIPOutputStream(OutputStream out, EntropyCoder coder) throws IOException {
+        this(out, coder, HZIPFormat.DEFAULT_BLOCK_SIZE);
+    }
+
+    public HZIPOutputStream(OutputStream out, EntropyCoder coder, int blockSize) throws IOException {
+        checkBlockSize(blockSize);
+        DataOutputStream dout = new DataOutputStream(stats.counting(out));
+        dout.writeByte(HZIPFormat.MAGIC);
+        dout.writeByte(HZIPFormat.CODED);
+        dout.writeByte(coder.getId());
+        dout.writeInt(blockSize);
+        writer = new BlockWriter(dout, coder, blockSize, stats, false);
+    }
+
+    public HZIPOutputStream(OutputStream out, HuffmanDictionary dictionary) throws IOException {
+        DataOutputStream dout = new DataOutputStream(stats.counting(out));
+        dout.writeByte(HZIPFormat.MAGIC);
+        dout.writeByte(HZIPFormat.DICTIONARY_CODED);
+        dout.writeInt(dictionary.getId());
+        stats.setTree(dictionary.getTree());
+        writer = new FrameWriter(dout, dictionary.getCoder(), HZIPFormat.DEFAULT_BLOCK_SIZE, stats, true, null);
+    }
+
+    public HZIPOutputStream(WritableByteChannel out, CharCounter counts) throws IOException {
+        this(out, counts, null);
+    }
+
+    public HZIPOutputStream(WritableByteChannel out, CharCounter counts, ForkJoinPool pool) throws IOException {
+        this(new BufferedOutputStream(Channels.newOutputStream(out), 1 << 16), counts, pool);
+    }
+
+    public HZIPStats getStats() {
+        return stats;
     }
 
     public void write(int ch) throws IOException {
-        byteOut.write(ch);
+        stats.addBytesIn(1);
+        writer.write(ch);
+    }
+
+    public void write(byte[] b, int off, int len) throws IOException {
+        long start = System.nanoTime();
+        stats.addBytesIn(len);
+        writer.write(b, off, len);
+        stats.addCodingNanos(System.nanoTime() - start);
+    }
+
+    public void write(ByteBuffer src) throws IOException {
+        if (src.hasArray()) {
+            write(src.array(), src.arrayOffset() + src.position(), src.remaining());
+        } else {
+            long start = System.nanoTime();
+            stats.addBytesIn(src.remaining());
+
+            if (chunk == null) {
+                chunk = new byte[CHUNK_SIZE];
+            }
+
+            while (src.hasRemaining()) {
+                int count = Math.min(src.remaining(), chunk.length);
+                src.get(chunk, 0, count);
+                writer.write(chunk, 0, count);
+            }
+
+            stats.addCodingNanos(System.nanoTime() - start);
+        }
+
+        src.position(src.limit());
+    }
+
+    public void flush() throws IOException {
+        long start = System.nanoTime();
+        writer.flush();
+        stats.addCodingNanos(System.nanoTime() - start);
     }
 
     public void close() throws IOException {
-        byte[] theInput = byteOut.toByteArray();
-        InputStream byteIn = new ByteArrayInputStream(theInput);
-        CharCounter countObj = new CharCounter(byteIn);
-        byteIn.close();
-        HuffmanTree codeTree = new HuffmanTree(countObj);
-        codeTree.writeEncodingTable(dout);
-        BitOutputStream bout = new BitOutputStream(dout);
-
-        for (int i = 0; i < theInput.length; i++) {
-            bout.writeBits(codeTree.getCode(theInput[i]));
-        }
-
-        bout.writeBits(codeTree.getCode(HuffmanTree.END & 0xff));
-        bout.close();
-        dout.close();
-        byteOut.close();
+        if (closed) {
+            return;
+        }
+
+        closed = true;
+        long start = System.nanoTime();
+        long phases = stats.getCountNanos() + stats.getBuildNanos();
+        writer.finish();
+        stats.addCodingNanos(System.nanoTime() - start - (stats.getCountNanos() + stats.getBuildNanos() - phases));
+        HZIPStats.compression().merge(stats);
+    }
+
+    private FormatWriter startAdaptive(OutputStream out, int format, int flushInterval) throws IOException {
+        if (format != HZIPFormat.ADAPTIVE) {
+            throw new IllegalArgumentException("Unsupported HZIP format " + format);
+        }
+
+        if (flushInterval <= 0 || flushInterval > HZIPFormat.MAX_BLOCK_SIZE) {
+            throw new IllegalArgumentException("Invalid flush interval " + flushInterval);
+        }
+
+        DataOutputStream dout = new DataOutputStream(stats.counting(out));
+        dout.writeByte(HZIPFormat.MAGIC);
+        dout.writeByte(format);
+
+        return new FrameWriter(dout, new AdaptiveHuffman(), flushInterval, stats, true, null);
+    }
+
+    private FormatWriter startLz(OutputStream out, LZCodec lz) throws IOException {
+        checkBlockSize(lz.getBlockSize());
+        DataOutputStream dout = new DataOutputStream(stats.counting(out));
+        dout.writeByte(HZIPFormat.MAGIC);
+        dout.writeByte(HZIPFormat.LZ);
+        dout.writeByte(HZIPFormat.LZ_VERSION);
+        dout.writeInt(lz.getBlockSize());
+
+        return new BlockWriter(dout, lz, lz.getBlockSize(), stats, false);
+    }
+
+    private static FormatWriter startTable(DataOutputStream dout, CharCounter counts, HZIPStats stats,
+            ForkJoinPool pool) throws IOException {
+        long start = System.nanoTime();
+        counts = withEnd(counts);
+        HuffmanTree codeTree = new HuffmanTree(counts, HuffmanTree.MAX_CODE_LENGTH);
+        ByteArrayOutputStream table = new ByteArrayOutputStream();
+        codeTree.writeEncodingTable(new DataOutputStream(table));
+        byte[] header = table.toByteArray();
+        header[0] = (byte) HZIPFormat.FRAMED_TABLE;
+        dout.write(header);
+        stats.addBuildNanos(System.nanoTime() - start);
+        stats.setTree(codeTree);
+        stats.addSymbols(counts);
+
+        return new FrameWriter(dout, new HuffmanCoder(codeTree), HZIPFormat.DEFAULT_BLOCK_SIZE, stats, false, pool);
+    }
+
+    private static void checkBlockSize(int blockSize) {
+        if (blockSize <= 0 || blockSize > HZIPFormat.MAX_BLOCK_SIZE) {
+            throw new IllegalArgumentException("Invalid block size " + blockSize);
+        }
+    }
+
+    private static CharCounter withEnd(CharCounter counts) {
+        if (counts.getCount(HuffmanTree.END) > 0) {
+            return counts;
+        }
+
+        CharCounter result = new CharCounter();
+
+        for (int i = 0; i < HuffmanTree.END; i++) {
+            result.setCount(i, counts.getCount(i));
+        }
+
+        result.setCount(HuffmanTree.END, 1);
+
+        return result;
+    }
+
+    private abstract static class FormatWriter {
+
+        abstract void write(int ch) throws IOException;
+
+        abstract void write(byte[] b, int off, int len) throws IOException;
+
+        abstract void flush() throws IOException;
+
+        abstract void finish() throws IOException;
+
+    }
+
+    private static class TableWriter extends FormatWriter {
+
+        private DataOutputStream dout;
+        private HZIPStats stats;
+        private ByteArrayOutputStream byteOut = new ByteArrayOutputStream();
+
+        TableWriter(DataOutputStream dout, HZIPStats stats) {
+            this.dout = dout;
+            this.stats = stats;
+        }
+
+        void write(int ch) {
+            byteOut.write(ch);
+        }
+
+        void write(byte[] b, int off, int len) {
+            byteOut.write(b, off, len);
+        }
+
+        void flush() throws IOException {
+            dout.flush();
+        }
+
+        void finish() throws IOException {
+            byte[] theInput = byteOut.toByteArray();
+            long start = System.nanoTime();
+            InputStream byteIn = new ByteArrayInputStream(theInput);
+            CharCounter countObj = new CharCounter(byteIn);
+            byteIn.close();
+            byteOut.close();
+            stats.addCountNanos(System.nanoTime() - start);
+            FormatWriter frames = startTable(dout, countObj, stats, null);
+            frames.write(theInput, 0, theInput.length);
+            frames.finish();
+        }
+
+    }
+
+    private static class BlockWriter extends FormatWriter {
+
+        DataOutputStream dout;
+        EntropyCoder coder;
+        private int blockSize;
+        byte[] block;
+        int pendingBytes;
+        HZIPStats stats;
+        private boolean countSymbols;
+
+        BlockWriter(DataOutputStream dout, EntropyCoder coder, int blockSize, HZIPStats stats, boolean countSymbols) {
+            this.dout = dout;
+            this.coder = coder;
+            this.blockSize = blockSize;
+            this.stats = stats;
+            this.countSymbols = countSymbols;
+            block = new byte[Math.min(blockSize, FIRST_BLOCK_SIZE)];
+        }
+
+        void write(int ch) throws IOException {
+            if (pendingBytes == block.length) {
+                growBlock();
+            }
+
+            block[pendingBytes++] = (byte) ch;
+
+            if (pendingBytes == blockSize) {
+                writeBlock(false);
+            }
+        }
+
+        void write(byte[] b, int off, int len) throws IOException {
+            while (len > 0) {
+                if (pendingBytes == block.length) {
+                    growBlock();
+                }
+
+                int count = Math.min(len, block.length - pendingBytes);
+                System.arraycopy(b, off, block, pendingBytes, count);
+                pendingBytes += count;
+                off += count;
+                len -= count;
+
+                if (pendingBytes == blockSize) {
+                    writeBlock(false);
+                }
+            }
+        }
+
+        void flush() throws IOException {
+            if (pendingBytes > 0) {
+                writeBlock(false);
+            }
+
+            dout.flush();
+        }
+
+        void finish() throws IOException {
+            if (pendingBytes > 0) {
+                writeBlock(false);
+            }
+
+            dout.writeInt(0);
+            dout.close();
+        }
+
+        void writeBlock(boolean last) throws IOException {
+            countBlock();
+            writeFrame(pendingBytes, coder.encode(block, 0, pendingBytes, stats), last);
+            pendingBytes = 0;
+        }
+
+        void countBlock() {
+            if (countSymbols) {
+                CharCounter counts = new CharCounter();
+                counts.count(block, 0, pendingBytes);
+                stats.addSymbols(counts);
+            }
+        }
+
+        void writeFrame(int length, byte[] payload, boolean last) throws IOException {
+            writeLengths(length, payload.length, last);
+            dout.writeInt(BlockCodec.checksum(payload));
+            dout.write(payload);
+        }
+
+        void writeLengths(int length, int compressedLength, boolean last) throws IOException {
+            dout.writeInt(length);
+            dout.writeInt(compressedLength);
+        }
+
+        private void growBlock() {
+            block = Arrays.copyOf(block, Math.min(blockSize, 2 * block.length));
+        }
+
+    }
+
+    private static class FrameWriter extends BlockWriter {
+
+        private ForkJoinPool pool;
+        private ArrayDeque<BlockCodec.EncodeTask> pending = new ArrayDeque<BlockCodec.EncodeTask>();
+        private ArrayDeque<Integer> pendingHeaders = new ArrayDeque<Integer>();
+
+        FrameWriter(DataOutputStream dout, EntropyCoder coder, int blockSize, HZIPStats stats, boolean countSymbols,
+                ForkJoinPool pool) {
+            super(dout, coder, blockSize, stats, countSymbols);
+            this.pool = pool;
+        }
+
+        void flush() throws IOException {
+            if (pendingBytes > 0) {
+                writeBlock(false);
+            }
+
+            writePending(0);
+            dout.flush();
+        }
+
+        void finish() throws IOException {
+            writeBlock(true);
+            writePending(0);
+            dout.close();
+        }
+
+        void writeBlock(boolean last) throws IOException {
+            if (pool == null) {
+                super.writeBlock(last);
+
+                return;
+            }
+
+            writePending(2 * pool.getParallelism() - 1);
+            countBlock();
+            BlockCodec.EncodeTask task = new BlockCodec.EncodeTask(coder, block, pendingBytes);
+            pool.submit(task);
+            pending.add(task);
+            pendingHeaders.add(pendingBytes << 1 | (last ? 1 : 0));
+            block = new byte[block.length];
+            pendingBytes = 0;
+        }
+
+        private void writePending(int keep) throws IOException {
+            while (pending.size() > keep) {
+                BlockCodec.EncodeTask task = pending.remove();
+                byte[] payload = BlockCodec.join(task);
+                stats.addSymbols(task.getStats());
+                int header = pendingHeaders.remove();
+                writeFrame(header >>> 1, payload, (header & 1) != 0);
+            }
+        }
+
+        void writeLengths(int length, int compressedLength, boolean last) throws IOException {
+            BlockCodec.writeVarint(dout, length << 1 | (last ? 1 : 0));
+            BlockCodec.writeVarint(dout, compressedLength);
+        }
+
     }
 
 }
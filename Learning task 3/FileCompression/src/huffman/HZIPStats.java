@@ -0,0 +1,309 @@
+package huffman;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.io.*;
+import java.lang.management.ManagementFactory;
+
+public class HZIPStats implements HZIPStatsMBean {
+
+    private static final double NANOS_PER_SECOND = 1e9;
+    private static final double BYTES_PER_MEGABYTE = 1 << 20;
+    private static final HZIPStats compression = new HZIPStats(true);
+    private static final HZIPStats decompression = new HZIPStats(false);
+    private boolean compressing;
+    private long streams;
+    private long bytesIn;
+    private long bytesOut;
+    private long countNanos;
+    private long buildNanos;
+    private long codingNanos;
+    private int treeDepth;
+    private int[] codeLengths;
+    private long codedSymbols;
+    private long codedBits;
+    private long[] symbols = new long[BitUtils.DIFF_BYTES];
+
+    public HZIPStats(boolean compressing) {
+        this.compressing = compressing;
+    }
+
+    public static HZIPStats compression() {
+        return compression;
+    }
+
+    public static HZIPStats decompression() {
+        return decompression;
+    }
+
+    public static synchronized void registerMBeans() throws JMException {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName compressionName = new ObjectName("huffman:type=HZIPStats,name=compression");
+        ObjectName decompressionName = new ObjectName("huffman:type=HZIPStats,name=decompression");
+
+        if (!server.isRegistered(compressionName)) {
+            server.registerMBean(compression, compressionName);
+        }
+
+        if (!server.isRegistered(decompressionName)) {
+            server.registerMBean(decompression, decompressionName);
+        }
+    }
+
+    public boolean isCompressing() {
+        return compressing;
+    }
+
+    public synchronized long getStreams() {
+        return streams;
+    }
+
+    public synchronized long getBytesIn() {
+        return bytesIn;
+    }
+
+    public synchronized long getBytesOut() {
+        return bytesOut;
+    }
+
+    public synchronized double getRatio() {
+        long raw = rawBytes();
+
+        return raw == 0 ? 0 : (double) compressedBytes() / raw;
+    }
+
+    public synchronized double getAverageCodeLength() {
+        return codedSymbols == 0 ? 0 : (double) codedBits / codedSymbols;
+    }
+
+    public synchronized double getBitsPerByte() {
+        long raw = rawBytes();
+
+        return raw == 0 ? 0 : (double) compressedBytes() * BitUtils.BITS_PER_BYTES / raw;
+    }
+
+    public synchronized double getEntropy() {
+        long total = 0;
+
+        for (long count : symbols) {
+            total += count;
+        }
+
+        double entropy = 0;
+
+        for (long count : symbols) {
+            if (count > 0) {
+                double p = (double) count / total;
+                entropy -= p * Math.log(p) / Math.log(2);
+            }
+        }
+
+        return entropy;
+    }
+
+    public synchronized int getTreeDepth() {
+        return treeDepth;
+    }
+
+    public synchronized long getCountNanos() {
+        return countNanos;
+    }
+
+    public synchronized long getBuildNanos() {
+        return buildNanos;
+    }
+
+    public synchronized long getCodingNanos() {
+        return codingNanos;
+    }
+
+    public synchronized double getMegabytesPerSecond() {
+        long nanos = countNanos + buildNanos + codingNanos;
+
+        return nanos == 0 ? 0 : rawBytes() / BYTES_PER_MEGABYTE / (nanos / NANOS_PER_SECOND);
+    }
+
+    public synchronized void merge(HZIPStats other) {
+        streams++;
+        bytesIn += other.bytesIn;
+        bytesOut += other.bytesOut;
+        countNanos += other.countNanos;
+        buildNanos += other.buildNanos;
+        codingNanos += other.codingNanos;
+        addSymbols(other);
+    }
+
+    public synchronized String toString() {
+        StringBuilder report = new StringBuilder();
+        report.append(String.format("%d bytes in, %d bytes out, ratio %.3f%n", bytesIn, bytesOut, getRatio()));
+
+        if (compressing) {
+            report.append(String.format("%.3f bits per byte", getBitsPerByte()));
+
+            if (codedSymbols > 0) {
+                report.append(String.format(", average code length %.3f bits", getAverageCodeLength()));
+            }
+
+            if (hasSymbols()) {
+                report.append(String.format(", entropy %.3f bits", getEntropy()));
+            }
+
+            if (treeDepth > 0) {
+                report.append(String.format(", tree depth %d", treeDepth));
+            }
+
+            report.append(String.format("%ncount %.1f ms, build %.1f ms, encode %.1f ms", countNanos / 1e6,
+                    buildNanos / 1e6, codingNanos / 1e6));
+        } else {
+            report.append(String.format("build %.1f ms, decode %.1f ms", buildNanos / 1e6, codingNanos / 1e6));
+        }
+
+        report.append(String.format(", %.1f MB/s", getMegabytesPerSecond()));
+
+        return report.toString();
+    }
+
+    void addBytesIn(long bytes) {
+        bytesIn += bytes;
+    }
+
+    void addBytesOut(long bytes) {
+        bytesOut += bytes;
+    }
+
+    void addCountNanos(long nanos) {
+        countNanos += nanos;
+    }
+
+    void addBuildNanos(long nanos) {
+        buildNanos += nanos;
+    }
+
+    void addCodingNanos(long nanos) {
+        codingNanos += nanos;
+    }
+
+    void setTree(HuffmanTree tree) {
+        codeLengths = tree.getCodeLengths();
+
+        for (int length : codeLengths) {
+            treeDepth = Math.max(treeDepth, length);
+        }
+    }
+
+    void addSymbol(int symbol) {
+        addCount(symbol, 1);
+    }
+
+    void addSymbols(CharCounter counts) {
+        for (int i = 0; i < symbols.length; i++) {
+            addCount(i, counts.getCount(i));
+        }
+    }
+
+    void addSymbols(long[] counts) {
+        for (int i = 0; i < symbols.length; i++) {
+            addCount(i, counts[i]);
+        }
+    }
+
+    void addSymbols(HZIPStats other) {
+        treeDepth = Math.max(treeDepth, other.treeDepth);
+        codedSymbols += other.codedSymbols;
+        codedBits += other.codedBits;
+
+        for (int i = 0; i < symbols.length; i++) {
+            symbols[i] += other.symbols[i];
+        }
+    }
+
+    OutputStream counting(OutputStream out) {
+        return new CountingOutputStream(out);
+    }
+
+    InputStream counting(InputStream in) {
+        return new CountingInputStream(in);
+    }
+
+    private void addCount(int symbol, long count) {
+        symbols[symbol] += count;
+
+        if (codeLengths != null) {
+            codedSymbols += count;
+            codedBits += count * codeLengths[symbol];
+        }
+    }
+
+    private boolean hasSymbols() {
+        for (long count : symbols) {
+            if (count > 0) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    private long rawBytes() {
+        return compressing ? bytesIn : bytesOut;
+    }
+
+    private long compressedBytes() {
+        return compressing ? bytesOut : bytesIn;
+    }
+
+    private class CountingOutputStream extends FilterOutputStream {
+
+        CountingOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        public void write(int b) throws IOException {
+            out.write(b);
+            bytesOut++;
+        }
+
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            bytesOut += len;
+        }
+
+    }
+
+    private class CountingInputStream extends FilterInputStream {
+
+        CountingInputStream(InputStream in) {
+            super(in);
+        }
+
+        public int read() throws IOException {
+            int b = in.read();
+
+            if (b != -1) {
+                bytesIn++;
+            }
+
+            return b;
+        }
+
+        public int read(byte[] b, int off, int len) throws IOException {
+            int read = in.read(b, off, len);
+
+            if (read > 0) {
+                bytesIn += read;
+            }
+
+            return read;
+        }
+
+        public long skip(long n) throws IOException {
+            long skipped = in.skip(n);
+            bytesIn += skipped;
+
+            return skipped;
+        }
+
+    }
+
+}
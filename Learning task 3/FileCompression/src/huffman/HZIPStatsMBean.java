@@ -0,0 +1,29 @@
+package huffman;
+
+public interface HZIPStatsMBean {
+
+    long getStreams();
+
+    long getBytesIn();
+
+    long getBytesOut();
+
+    double getRatio();
+
+    double getAverageCodeLength();
+
+    double getBitsPerByte();
+
+    double getEntropy();
+
+    int getTreeDepth();
+
+    long getCountNanos();
+
+    long getBuildNanos();
+
+    long getCodingNanos();
+
+    double getMegabytesPerSecond();
+
+}
@@ -0,0 +1,13 @@
+package huffman;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+public interface HZIPStream extends Closeable {
+
+    void write(ByteBuffer src) throws IOException;
+
+    HZIPStats getStats();
+
+}
@@ -3,12 +3,13 @@ package huffman;
 public class HuffNode implements Comparable<HuffNode> {
 
     public int value;
-    public int weight;
+    public long weight;
     HuffNode left;
     HuffNode right;
     HuffNode parent;
+    int order;
 
-    HuffNode(int v, int w, HuffNode lt, HuffNode rt, HuffNode pt) {
+    HuffNode(int v, long w, HuffNode lt, HuffNode rt, HuffNode pt) {
         value = v;
         weight = w;
         left = lt;
@@ -18,7 +19,12 @@ public class HuffNode implements Comparable<HuffNode> {
 
     public int compareTo(HuffNode rhs) {
         HuffNode other = rhs;
-        return weight - other.weight;
+
+        if (weight != other.weight) {
+            return weight < other.weight ? -1 : 1;
+        }
+
+        return order - other.order;
     }
 
 }
@@ -0,0 +1,191 @@
+package huffman;
+
+import java.io.IOException;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+
+public class HuffmanCodec {
+
+    private static final int ALPHABET = BitUtils.DIFF_BYTES;
+    private static final int MAX_TABLE_SIZE = HuffmanTree.maxCodeLengthsSize(ALPHABET + 1);
+    private long[] counts = new long[ALPHABET];
+    private int[] lengths = new int[ALPHABET + 1];
+    private long[] codes = new long[ALPHABET + 1];
+    private int[] table = new int[1 << 10];
+
+    public static int maxCompressedLength(int length) {
+        return 4 + MAX_TABLE_SIZE + (int) (((long) length * HuffmanTree.MAX_CODE_LENGTH + 7) / 8) + 8;
+    }
+
+    public int compress(ByteBuffer src, ByteBuffer dst) {
+        int start = dst.position();
+        int length = src.remaining();
+
+        if (dst.remaining() < 4) {
+            throw new BufferOverflowException();
+        }
+
+        dst.putInt(length);
+
+        if (length == 0) {
+            return 4;
+        }
+
+        Arrays.fill(counts, 0);
+
+        for (int i = src.position(); i < src.limit(); i++) {
+            counts[src.get(i) & 0xff]++;
+        }
+
+        int[] packed = PackageMerge.codeLengths(counts, HuffmanTree.MAX_CODE_LENGTH);
+        System.arraycopy(packed, 0, lengths, 0, ALPHABET);
+        lengths[ALPHABET] = 0;
+        HuffmanTree.assignCanonicalCodes(lengths, codes);
+        HuffmanTree.writeCodeLengths(lengths, dst);
+
+        ByteOrder order = dst.order();
+        dst.order(ByteOrder.LITTLE_ENDIAN);
+
+        try {
+            long buffer = 0;
+            int bits = 0;
+
+            for (int i = src.position(); i < src.limit(); i++) {
+                int symbol = src.get(i) & 0xff;
+                buffer |= codes[symbol] << bits;
+                bits += lengths[symbol];
+
+                if (bits >= 32) {
+                    dst.putInt((int) buffer);
+                    buffer >>>= 32;
+                    bits -= 32;
+                }
+            }
+
+            for (; bits > 0; bits -= 8) {
+                dst.put((byte) buffer);
+                buffer >>>= 8;
+            }
+        } finally {
+            dst.order(order);
+        }
+
+        src.position(src.limit());
+
+        return dst.position() - start;
+    }
+
+    public int decompress(ByteBuffer src, ByteBuffer dst) throws IOException {
+        int start = dst.position();
+
+        if (src.remaining() < 4) {
+            throw new IOException("Truncated frame: missing length");
+        }
+
+        int length = src.getInt();
+
+        if (length < 0) {
+            throw new IOException("Corrupt frame length " + length);
+        }
+
+        if (length > dst.remaining()) {
+            throw new BufferOverflowException();
+        }
+
+        if (length == 0) {
+            return 0;
+        }
+
+        int maxLength = readTable(src);
+        int mask = (1 << maxLength) - 1;
+        buildTable(maxLength);
+
+        ByteOrder order = src.order();
+        src.order(ByteOrder.LITTLE_ENDIAN);
+
+        try {
+            int pos = src.position();
+            int limit = src.limit();
+            long buffer = 0;
+            int bits = 0;
+
+            for (int i = 0; i < length; i++) {
+                if (bits < maxLength) {
+                    if (limit - pos >= 8) {
+                        buffer |= src.getLong(pos) << bits;
+                        int bytes = (63 - bits) >>> 3;
+                        pos += bytes;
+                        bits += bytes << 3;
+                    } else {
+                        while (bits <= 56 && pos < limit) {
+                            buffer |= (src.get(pos++) & 0xffL) << bits;
+                            bits += 8;
+                        }
+                    }
+                }
+
+                int entry = table[(int) buffer & mask];
+                int codeLength = entry >>> 16;
+
+                if (codeLength == 0 || codeLength > bits) {
+                    throw new IOException("Corrupt frame: invalid code after " + i + " of " + length + " bytes");
+                }
+
+                dst.put((byte) entry);
+                buffer >>>= codeLength;
+                bits -= codeLength;
+            }
+
+            src.position(pos - (bits >>> 3));
+        } finally {
+            src.order(order);
+        }
+
+        return dst.position() - start;
+    }
+
+    private void buildTable(int maxLength) throws IOException {
+        try {
+            HuffmanTree.assignCanonicalCodes(lengths, codes);
+        } catch (IllegalArgumentException e) {
+            throw new IOException("Corrupt frame: " + e.getMessage());
+        }
+
+        if (table.length < 1 << maxLength) {
+            table = new int[1 << maxLength];
+        }
+
+        Arrays.fill(table, 0, 1 << maxLength, 0);
+
+        for (int i = 0; i < ALPHABET; i++) {
+            if (lengths[i] > 0) {
+                for (int j = (int) codes[i]; j < 1 << maxLength; j += 1 << lengths[i]) {
+                    table[j] = (lengths[i] << 16) | i;
+                }
+            }
+        }
+    }
+
+    private int readTable(ByteBuffer src) throws IOException {
+        HuffmanTree.readCodeLengths(src, lengths);
+
+        if (lengths[ALPHABET] != 0) {
+            throw new IOException("Corrupt frame: code for end of stream symbol");
+        }
+
+        int maxLength = 0;
+
+        for (int i = 0; i < ALPHABET; i++) {
+            maxLength = Math.max(maxLength, lengths[i]);
+        }
+
+        if (maxLength == 0) {
+            throw new IOException("Corrupt frame: no code lengths");
+        }
+
+        return maxLength;
+    }
+
+}
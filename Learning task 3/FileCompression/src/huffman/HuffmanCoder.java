@@ -0,0 +1,38 @@
+package huffman;
+
+import java.io.IOException;
+
+public class HuffmanCoder implements EntropyCoder {
+
+    private HuffmanTree sharedTree;
+    private HuffmanDecoder sharedDecoder;
+
+    public HuffmanCoder() {
+        this(null);
+    }
+
+    public HuffmanCoder(HuffmanTree sharedTree) {
+        this.sharedTree = sharedTree;
+
+        if (sharedTree != null) {
+            sharedDecoder = new HuffmanDecoder(sharedTree);
+        }
+    }
+
+    public int getId() {
+        return HZIPFormat.HUFFMAN_CODER;
+    }
+
+    public byte[] encode(byte[] data, int off, int len) throws IOException {
+        return encode(data, off, len, null);
+    }
+
+    public byte[] encode(byte[] data, int off, int len, HZIPStats stats) throws IOException {
+        return BlockCodec.encode(data, off, len, sharedTree, stats);
+    }
+
+    public byte[] decode(byte[] payload, int len) throws IOException {
+        return BlockCodec.decode(payload, len, sharedDecoder);
+    }
+
+}
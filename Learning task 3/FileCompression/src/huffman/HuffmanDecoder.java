@@ -0,0 +1,72 @@
+package huffman;
+
+import java.io.IOException;
+
+public class HuffmanDecoder {
+
+    public static final int TABLE_BITS = 10;
+    private static final int LENGTH_SHIFT = 16;
+    private static final int SYMBOL_MASK = (1 << LENGTH_SHIFT) - 1;
+    private HuffNode root;
+    private int[] table = new int[1 << TABLE_BITS];
+
+    public HuffmanDecoder(HuffmanTree tree) {
+        root = tree.getRoot();
+
+        for (int symbol = 0; symbol < tree.getAlphabetSize(); symbol++) {
+            int length = tree.getCodeLength(symbol);
+
+            if (length == 0 || length > TABLE_BITS) {
+                continue;
+            }
+
+            int entry = (length << LENGTH_SHIFT) | symbol;
+
+            for (int i = (int) tree.getCodeBits(symbol); i < table.length; i += 1 << length) {
+                table[i] = entry;
+            }
+        }
+    }
+
+    public int decode(BitInputStream in) throws IOException {
+        int entry = table[(int) in.peekBits(TABLE_BITS)];
+        int length = entry >>> LENGTH_SHIFT;
+
+        if (length == 0) {
+            return decodeSlow(in);
+        }
+
+        if (length > in.bufferedBits()) {
+            return -1;
+        }
+
+        in.skipBits(length);
+
+        return entry & SYMBOL_MASK;
+    }
+
+    private int decodeSlow(BitInputStream in) throws IOException {
+        HuffNode current = root;
+
+        while (current.left != null || current.right != null) {
+            int bit = in.readBit();
+
+            if (bit == -1) {
+                return -1;
+            }
+
+            current = bit == 0 ? current.left : current.right;
+
+            if (current == null) {
+                throw new IOException("Decoding error: invalid Huffman code");
+            }
+        }
+
+        if (current.value < 0) {
+            throw new IOException("Decoding error: invalid Huffman code");
+        }
+
+        return current.value;
+    }
+
+}
@@ -0,0 +1,108 @@
+package huffman;
+
+import java.io.*;
+import java.util.HashMap;
+import java.util.List;
+
+public class HuffmanDictionary {
+
+    private static final HashMap<Integer, HuffmanDictionary> dictionaries = new HashMap<Integer, HuffmanDictionary>();
+    private int id;
+    private HuffmanTree tree;
+    private HuffmanCoder coder;
+
+    private HuffmanDictionary(HuffmanTree tree) throws IOException {
+        this.tree = tree;
+        id = BlockCodec.checksum(tableBytes(tree));
+        coder = new HuffmanCoder(tree);
+    }
+
+    public static HuffmanDictionary train(List<byte[]> samples) throws IOException {
+        CharCounter counts = new CharCounter();
+
+        for (byte[] sample : samples) {
+            counts.count(sample, 0, sample.length);
+        }
+
+        for (int i = 0; i < BitUtils.DIFF_BYTES; i++) {
+            counts.setCount(i, counts.getCount(i) + 1);
+        }
+
+        counts.setCount(HuffmanTree.END, Math.max(1, samples.size()));
+
+        return new HuffmanDictionary(new HuffmanTree(counts, HuffmanTree.MAX_CODE_LENGTH));
+    }
+
+    public static HuffmanDictionary read(InputStream in) throws IOException {
+        DataInputStream din = new DataInputStream(in);
+
+        if (din.readUnsignedByte() != HZIPFormat.MAGIC || din.readUnsignedByte() != HZIPFormat.DICTIONARY) {
+            throw new IOException("Not an HZIP dictionary");
+        }
+
+        int id = din.readInt();
+        HuffmanTree tree = new HuffmanTree();
+        tree.readEncodingTable(din);
+
+        if (!tree.isCanonical()) {
+            throw new IOException("Corrupt dictionary: expected code lengths");
+        }
+
+        for (int i = 0; i <= BitUtils.DIFF_BYTES; i++) {
+            if (tree.getCodeLength(i) == 0) {
+                throw new IOException("Corrupt dictionary: no code for symbol " + i);
+            }
+        }
+
+        HuffmanDictionary dictionary = new HuffmanDictionary(tree);
+
+        if (dictionary.id != id) {
+            throw new IOException("Corrupt dictionary: id does not match its table");
+        }
+
+        return dictionary;
+    }
+
+    public void write(OutputStream out) throws IOException {
+        DataOutputStream dout = new DataOutputStream(out);
+        dout.writeByte(HZIPFormat.MAGIC);
+        dout.writeByte(HZIPFormat.DICTIONARY);
+        dout.writeInt(id);
+        tree.writeEncodingTable(dout);
+        dout.flush();
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    HuffmanTree getTree() {
+        return tree;
+    }
+
+    HuffmanCoder getCoder() {
+        return coder;
+    }
+
+    public static synchronized void register(HuffmanDictionary dictionary) {
+        dictionaries.put(dictionary.id, dictionary);
+    }
+
+    public static synchronized HuffmanDictionary get(int id) throws IOException {
+        HuffmanDictionary dictionary = dictionaries.get(id);
+
+        if (dictionary == null) {
+            throw new IOException("Unknown dictionary " + Integer.toHexString(id));
+        }
+
+        return dictionary;
+    }
+
+    private static byte[] tableBytes(HuffmanTree tree) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        tree.writeEncodingTable(new DataOutputStream(bytes));
+
+        return bytes.toByteArray();
+    }
+
+}
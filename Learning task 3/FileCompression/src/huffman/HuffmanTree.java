@@ -2,64 +2,98 @@ package huffman;
 
 import java.io.DataInputStream;
 import java.io.DataOutputStream;
+import java.io.EOFException;
 import java.io.IOException;
-import java.util.ArrayList;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.PriorityQueue;
 
 public class HuffmanTree {
 
     public static final int ERROR = -3;
     public static final int INCOMPLETE_CODE = -2;
     public static final int END = BitUtils.DIFF_BYTES;
+    public static final int MAX_CODE_LENGTH = 15;
     private CharCounter theCounts;
-    private HuffNode[] theNodes = new HuffNode[BitUtils.DIFF_BYTES + 1];
+    private HuffNode[] theNodes;
+    private long[] codeBits;
+    private int[] codeLengths;
     private HuffNode root;
+    private boolean canonical;
 
     public HuffmanTree() {
+        this(BitUtils.DIFF_BYTES + 1);
+    }
+
+    public HuffmanTree(int alphabet) {
         theCounts = new CharCounter();
+        theNodes = new HuffNode[alphabet];
+        codeBits = new long[alphabet];
+        codeLengths = new int[alphabet];
         root = null;
     }
 
     public HuffmanTree(CharCounter cc) {
+        this();
         theCounts = cc;
-        root = null;
         createTree();
     }
 
-    public int[] getCode(int ch) {
-        HuffNode current = theNodes[ch & 0xff];
+    public HuffmanTree(CharCounter cc, int maxLength) {
+        this(countsOf(cc), maxLength);
+        theCounts = cc;
+    }
 
-        if (current == null) {
-            return null;
-        }
+    public HuffmanTree(long[] weights, int maxLength) {
+        this(weights.length);
+        createCanonicalTree(PackageMerge.codeLengths(weights, maxLength));
+    }
 
-        String v = "";
-        HuffNode par = current.parent;
+    public HuffmanTree(int[] lengths) {
+        this(lengths.length);
+        createCanonicalTree(lengths);
+    }
 
-        while (par != null) {
-            if (par.left == current) {
-                v = "0" + v;
-            } else {
-                v = "1" + v;
-            }
+    public int getAlphabetSize() {
+        return codeLengths.length;
+    }
 
-            current = current.parent;
-            par = current.parent;
+    public int[] getCodeLengths() {
+        return codeLengths.clone();
+    }
+
+    public boolean isCanonical() {
+        return canonical;
+    }
+
+    public int[] getCode(int ch) {
+        if (theNodes[ch] == null) {
+            return null;
         }
 
-        int[] result = new int[v.length()];
+        long bits = codeBits[ch];
+        int[] result = new int[codeLengths[ch]];
 
         for (int i = 0; i < result.length; i++) {
-            result[i] = v.charAt(i) == '0' ? 0 : 1;
+            result[i] = (int) (bits >>> i) & 1;
         }
 
         return result;
     }
 
+    public long getCodeBits(int ch) {
+        return codeBits[ch];
+    }
+
+    public int getCodeLength(int ch) {
+        return codeLengths[ch];
+    }
+
     public int getChar(String code) {
         char[] numbers = code.toCharArray();
         HuffNode current = root;
 
-        for (int i = 0; i < numbers.length; i++) {
+        for (int i = 0; current != null && i < numbers.length; i++) {
             if (numbers[i] == '0') {
                 current = current.left;
             } else {
@@ -67,14 +101,32 @@ public class HuffmanTree {
             }
         }
 
+        if (current == null) {
+            return ERROR;
+        }
+
         return current.value;
     }
 
+    HuffNode getRoot() {
+        return root;
+    }
+
     public void writeEncodingTable(DataOutputStream out) throws IOException {
+        if (canonical) {
+            writeCodeLengths(out);
+
+            return;
+        }
+
         for (int i = 0; i <= BitUtils.DIFF_BYTES; i++) {
+            if (theCounts.getCount(i) > Integer.MAX_VALUE) {
+                throw new IOException("Count too large for encoding table: " + theCounts.getCount(i));
+            }
+
             if (theCounts.getCount(i) > 0) {
                 out.writeByte(i);
-                out.writeInt(theCounts.getCount(i));
+                out.writeInt((int) theCounts.getCount(i));
             }
         }
 
@@ -83,60 +135,322 @@ public class HuffmanTree {
     }
 
     public void readEncodingTable(DataInputStream in) throws IOException {
+        int ch = in.readUnsignedByte();
+
+        if (ch == HZIPFormat.CANONICAL_TABLE) {
+            readCodeLengths(in);
+
+            return;
+        }
+
+        if (codeLengths.length != BitUtils.DIFF_BYTES + 1) {
+            throw new IOException("Corrupt encoding table: expected code lengths");
+        }
+
         for (int i = 0; i <= BitUtils.DIFF_BYTES; i++) {
             theCounts.setCount(i, 0);
         }
 
-        int ch;
         int num;
+        int symbols = 0;
 
         while (true) {
-            ch = in.readByte() & 0xff;
             num = in.readInt();
 
             if (num == 0) {
                 break;
             }
 
+            if (num < 0) {
+                throw new IOException("Corrupt encoding table: negative count " + num);
+            }
+
             theCounts.setCount(ch, num);
+            symbols++;
+            ch = in.readUnsignedByte();
         }
 
+        if (symbols == 0) {
+            throw new IOException("Corrupt encoding table: no symbols");
+        }
+
+        theCounts.setCount(END, theCounts.getCount(END & 0xff));
         createTree();
     }
 
+    public static int maxCodeLengthsSize(int alphabet) {
+        return 1 + (alphabet * 3 + 1) / 2;
+    }
+
+    public static void writeCodeLengths(int[] lengths, ByteBuffer dst) {
+        NibbleWriter nibbles = new NibbleWriter(dst);
+        dst.put((byte) HZIPFormat.CANONICAL_TABLE);
+        int symbol = 0;
+
+        while (symbol < lengths.length) {
+            if (lengths[symbol] > 0) {
+                nibbles.write(lengths[symbol++]);
+                continue;
+            }
+
+            int run = 0;
+
+            while (symbol + run < lengths.length && lengths[symbol + run] == 0 && run < BitUtils.DIFF_BYTES) {
+                run++;
+            }
+
+            nibbles.write(0);
+            nibbles.write((run - 1) >>> 4);
+            nibbles.write((run - 1) & 0xf);
+            symbol += run;
+        }
+
+        nibbles.flush();
+    }
+
+    public static void readCodeLengths(ByteBuffer src, int[] lengths) throws IOException {
+        if (!src.hasRemaining() || src.get() != HZIPFormat.CANONICAL_TABLE) {
+            throw new IOException("Corrupt encoding table: expected code lengths");
+        }
+
+        readCodeLengths(new NibbleReader(src), lengths);
+    }
+
+    public static void assignCanonicalCodes(int[] lengths, long[] codes) {
+        int maxLength = 0;
+
+        for (int i = 0; i < lengths.length; i++) {
+            if (lengths[i] < 0 || lengths[i] > Long.SIZE - 1) {
+                throw new IllegalArgumentException("Invalid code length " + lengths[i] + " for symbol " + i);
+            }
+
+            maxLength = Math.max(maxLength, lengths[i]);
+        }
+
+        int[] lengthCounts = new int[maxLength + 1];
+        long kraft = 0;
+
+        for (int i = 0; i < lengths.length; i++) {
+            if (lengths[i] > 0) {
+                lengthCounts[lengths[i]]++;
+                kraft += 1L << (maxLength - lengths[i]);
+            }
+        }
+
+        if (kraft > 1L << maxLength) {
+            throw new IllegalArgumentException("Code lengths are oversubscribed");
+        }
+
+        long[] nextCode = new long[maxLength + 1];
+        long code = 0;
+
+        for (int length = 1; length <= maxLength; length++) {
+            code = (code + lengthCounts[length - 1]) << 1;
+            nextCode[length] = code;
+        }
+
+        for (int i = 0; i < lengths.length; i++) {
+            if (lengths[i] > 0) {
+                codes[i] = Long.reverse(nextCode[lengths[i]]++) >>> (Long.SIZE - lengths[i]);
+            }
+        }
+    }
+
+    private static long[] countsOf(CharCounter cc) {
+        long[] weights = new long[BitUtils.DIFF_BYTES + 1];
+
+        for (int i = 0; i <= BitUtils.DIFF_BYTES; i++) {
+            weights[i] = cc.getCount(i);
+        }
+
+        return weights;
+    }
+
+    private void writeCodeLengths(DataOutputStream out) throws IOException {
+        ByteBuffer table = ByteBuffer.allocate(maxCodeLengthsSize(codeLengths.length));
+        writeCodeLengths(codeLengths, table);
+        out.write(table.array(), 0, table.position());
+    }
+
+    private void readCodeLengths(DataInputStream in) throws IOException {
+        int[] lengths = new int[codeLengths.length];
+        readCodeLengths(new NibbleReader(in), lengths);
+
+        try {
+            createCanonicalTree(lengths);
+        } catch (IllegalArgumentException e) {
+            throw new IOException("Corrupt encoding table: " + e.getMessage());
+        }
+    }
+
+    private static void readCodeLengths(NibbleReader nibbles, int[] lengths) throws IOException {
+        Arrays.fill(lengths, 0);
+        int symbol = 0;
+
+        while (symbol < lengths.length) {
+            int length = nibbles.read();
+
+            if (length > 0) {
+                lengths[symbol++] = length;
+                continue;
+            }
+
+            symbol += ((nibbles.read() << 4) | nibbles.read()) + 1;
+        }
+
+        if (symbol != lengths.length) {
+            throw new IOException("Corrupt encoding table: code lengths overrun the alphabet");
+        }
+    }
+
     private void createTree() {
-        ArrayList<HuffNode> ar = new ArrayList<HuffNode>();
+        PriorityQueue<HuffNode> pq = new PriorityQueue<HuffNode>();
+        int order = 0;
 
         for (int i = 0; i <= BitUtils.DIFF_BYTES; i++) {
             if (theCounts.getCount(i) > 0) {
                 HuffNode newNode = new HuffNode(i, theCounts.getCount(i), null, null, null);
+                newNode.order = order++;
                 theNodes[i] = newNode;
-                ar.add(newNode);
+                pq.add(newNode);
             }
         }
 
-        while (ar.size() > 1) {
-            HuffNode left = ar.remove(getLowestWeight(ar));
-            HuffNode right = ar.remove(getLowestWeight(ar));
+        while (pq.size() > 1) {
+            HuffNode left = pq.remove();
+            HuffNode right = pq.remove();
             HuffNode par = new HuffNode(INCOMPLETE_CODE, (right.weight + left.weight), left, right, null);
+            par.order = order++;
             right.parent = par;
             left.parent = par;
-            ar.add(par);
+            pq.add(par);
+        }
+
+        root = pq.remove();
+        assignCodes(root, 0, 0);
+    }
+
+    private void createCanonicalTree(int[] lengths) {
+        if (lengths.length > codeLengths.length) {
+            throw new IllegalArgumentException("Too many code lengths: " + lengths.length);
+        }
+
+        long[] codes = new long[lengths.length];
+        assignCanonicalCodes(lengths, codes);
+        root = new HuffNode(INCOMPLETE_CODE, 0, null, null, null);
+        canonical = true;
+
+        for (int i = 0; i < lengths.length; i++) {
+            if (lengths[i] > 0) {
+                insertCode(i, codes[i], lengths[i]);
+            }
+        }
+    }
+
+    private void insertCode(int symbol, long bits, int length) {
+        HuffNode current = root;
+
+        for (int i = 0; i < length; i++) {
+            boolean one = ((bits >>> i) & 1) == 1;
+            HuffNode next = one ? current.right : current.left;
+
+            if (next == null) {
+                int value = i == length - 1 ? symbol : INCOMPLETE_CODE;
+                next = new HuffNode(value, 0, null, null, current);
+
+                if (one) {
+                    current.right = next;
+                } else {
+                    current.left = next;
+                }
+            }
+
+            current = next;
+        }
+
+        theNodes[symbol] = current;
+        codeBits[symbol] = bits;
+        codeLengths[symbol] = length;
+    }
+
+    private void assignCodes(HuffNode node, long bits, int length) {
+        if (node.left == null && node.right == null) {
+            codeBits[node.value] = bits;
+            codeLengths[node.value] = length;
+
+            return;
         }
 
-        root = ar.remove(0);
+        assignCodes(node.left, bits, length + 1);
+        assignCodes(node.right, bits | (1L << length), length + 1);
     }
 
-    private int getLowestWeight(ArrayList<HuffNode> array) {
-        int lowest = 0;
+    private static class NibbleWriter {
 
-        for (int i = 0; i < array.size(); i++) {
-            if (array.get(i).weight < array.get(lowest).weight) {
-                lowest = i;
+        private ByteBuffer dst;
+        private int pending = -1;
+
+        NibbleWriter(ByteBuffer dst) {
+            this.dst = dst;
+        }
+
+        void write(int nibble) {
+            if (pending == -1) {
+                pending = nibble;
+            } else {
+                dst.put((byte) ((pending << 4) | nibble));
+                pending = -1;
             }
         }
 
-        return lowest;
+        void flush() {
+            if (pending != -1) {
+                write(0);
+            }
+        }
+
+    }
+
+    private static class NibbleReader {
+
+        private DataInputStream in;
+        private ByteBuffer src;
+        private int pending = -1;
+
+        NibbleReader(DataInputStream in) {
+            this.in = in;
+        }
+
+        NibbleReader(ByteBuffer src) {
+            this.src = src;
+        }
+
+        int read() throws IOException {
+            if (pending != -1) {
+                int nibble = pending;
+                pending = -1;
+
+                return nibble;
+            }
+
+            int next = nextByte();
+            pending = next & 0xf;
+
+            return next >>> 4;
+        }
+
+        private int nextByte() throws IOException {
+            if (in != null) {
+                return in.readUnsignedByte();
+            }
+
+            if (!src.hasRemaining()) {
+                throw new EOFException("Encoding table ends inside the code lengths");
+            }
+
+            return src.get() & 0xff;
+        }
+
     }
 
 }
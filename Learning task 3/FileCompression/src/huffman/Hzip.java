@@ -1,74 +1,477 @@
 package huffman;
 
+import javax.management.JMException;
 import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
 
 public class Hzip {
 
-    public static void compress(String inFile) throws IOException {
-        String compressedFile = inFile + ".huf";
-        InputStream in = new BufferedInputStream(new FileInputStream(inFile));
-        OutputStream fout = new BufferedOutputStream(new FileOutputStream(compressedFile));
-        HZIPOutputStream hzout = new HZIPOutputStream(fout);
-        int ch;
+    private static final String USAGE = "Usage: java Hzip -[cut] [-v] [-j threads] [--blocks | --lz | --rans | --order1 | --dict dictionary] files"
+            + " | -a [-j threads] [--shared] archive files | -[lx] archive [entries] | -d dictionary samples";
 
-        while ((ch = in.read()) != -1) {
-            hzout.write(ch);
+    public static HZIPStats compress(String inFile) throws IOException {
+        return compress(inFile, (ForkJoinPool) null);
+    }
+
+    public static HZIPStats compress(String inFile, final ForkJoinPool pool) throws IOException {
+        return compressWith(inFile, new StreamFactory() {
+            public HZIPStream open(FileChannel in, FileChannel out) throws IOException {
+                long start = System.nanoTime();
+                CharCounter counts = new CharCounter(in, pool);
+                long countNanos = System.nanoTime() - start;
+                HZIPOutputStream hzout = new HZIPOutputStream(out, counts, pool);
+                hzout.getStats().addCountNanos(countNanos);
+
+                return hzout;
+            }
+        });
+    }
+
+    public static HZIPStats compress(String inFile, final int format) throws IOException {
+        return compressWith(inFile, new StreamFactory() {
+            public HZIPStream open(FileChannel in, FileChannel out) throws IOException {
+                return new HZIPOutputStream(buffered(out), format);
+            }
+        });
+    }
+
+    public static HZIPStats compress(String inFile, final EntropyCoder coder) throws IOException {
+        return compressWith(inFile, new StreamFactory() {
+            public HZIPStream open(FileChannel in, FileChannel out) throws IOException {
+                return new HZIPOutputStream(buffered(out), coder);
+            }
+        });
+    }
+
+    public static HZIPStats compress(String inFile, final HuffmanDictionary dictionary) throws IOException {
+        return compressWith(inFile, new StreamFactory() {
+            public HZIPStream open(FileChannel in, FileChannel out) throws IOException {
+                return new HZIPOutputStream(buffered(out), dictionary);
+            }
+        });
+    }
+
+    public static HZIPStats compressBlocks(String inFile, final ForkJoinPool pool) throws IOException {
+        return compressWith(inFile, new StreamFactory() {
+            public HZIPStream open(FileChannel in, FileChannel out) throws IOException {
+                return new HZIPBlockOutputStream(buffered(out), pool);
+            }
+        });
+    }
+
+    private static HZIPStats compressWith(String inFile, StreamFactory factory) throws IOException {
+        try (FileChannel in = FileChannel.open(Paths.get(inFile), StandardOpenOption.READ);
+             FileChannel out = openForWriting(inFile + ".huf");
+             HZIPStream hzout = factory.open(in, out)) {
+            long size = in.size();
+
+            for (long pos = 0; pos < size; pos += BitUtils.MAP_WINDOW) {
+                hzout.write(in.map(FileChannel.MapMode.READ_ONLY, pos, Math.min(BitUtils.MAP_WINDOW, size - pos)));
+            }
+
+            return hzout.getStats();
         }
+    }
 
-        in.close();
-        hzout.close();
+    public static HZIPStats uncompress(String compressedFile) throws IOException {
+        return uncompress(compressedFile, null);
     }
 
-    public static void uncompress(String compressedFile) throws IOException {
+    public static HZIPStats uncompress(String compressedFile, ForkJoinPool pool) throws IOException {
         String extension;
         extension = compressedFile.substring(compressedFile.length() - 4);
 
         if (!extension.equals(".huf")) {
             System.out.println("Not a compressed file!");
 
-            return;
+            return null;
         }
 
-        InputStream fin = new BufferedInputStream(new FileInputStream(compressedFile));
-        HZIPInputStream hzin = new HZIPInputStream(fin);
+        FileChannel in = FileChannel.open(Paths.get(compressedFile), StandardOpenOption.READ);
+        HZIPInputStream hzin = new HZIPInputStream(new BufferedInputStream(Channels.newInputStream(in)), pool);
 
         String uncompressedFile;
         uncompressedFile = compressedFile.substring(0, compressedFile.length() - 4);
         uncompressedFile += ".uc";
-        OutputStream fout = new BufferedOutputStream(new FileOutputStream(uncompressedFile));
+        FileChannel out = openForWriting(uncompressedFile);
+        ByteBuffer buffer = ByteBuffer.allocateDirect(1 << 16);
 
-        int ch;
+        while (hzin.read(buffer) != -1) {
+            buffer.flip();
 
-        while ((ch = hzin.read()) != -1) {
-            fout.write(ch);
+            while (buffer.hasRemaining()) {
+                out.write(buffer);
+            }
+
+            buffer.clear();
         }
 
         hzin.close();
-        fout.close();
+        out.close();
+
+        return hzin.getStats();
+    }
+
+    public static void verify(String compressedFile) throws IOException {
+        FileChannel in = FileChannel.open(Paths.get(compressedFile), StandardOpenOption.READ);
+        ByteBuffer header = ByteBuffer.allocate(2);
+        in.read(header, 0);
+
+        try {
+            if (header.get(0) == HZIPFormat.MAGIC && header.get(1) == HZIPFormat.ARCHIVE) {
+                HZIPArchive archive = new HZIPArchive(in);
+
+                for (HZIPArchiveEntry entry : archive.getEntries()) {
+                    archive.verify(entry);
+                }
+
+                System.out.println(compressedFile + ": OK, " + archive.getEntries().size() + " entries");
+            } else {
+                HZIPInputStream hzin = new HZIPInputStream(new BufferedInputStream(Channels.newInputStream(in)));
+                long size = hzin.verify();
+
+                if (hzin.hasChecksums()) {
+                    System.out.println(compressedFile + ": OK, " + size + " bytes");
+                } else {
+                    System.out.println(compressedFile + ": no checksums present, decoded " + size
+                            + " bytes without errors");
+                }
+            }
+        } catch (IOException e) {
+            System.out.println(compressedFile + ": " + e.getMessage());
+        } finally {
+            in.close();
+        }
+    }
+
+    public static void train(String dictionaryFile, String[] files) throws IOException {
+        ArrayList<File> inputs = new ArrayList<File>();
+
+        for (String file : files) {
+            collectFiles(new File(file), inputs);
+        }
+
+        ArrayList<byte[]> samples = new ArrayList<byte[]>();
+
+        for (File input : inputs) {
+            samples.add(Files.readAllBytes(input.toPath()));
+        }
+
+        HuffmanDictionary dictionary = HuffmanDictionary.train(samples);
+        OutputStream out = new BufferedOutputStream(Channels.newOutputStream(openForWriting(dictionaryFile)));
+        dictionary.write(out);
+        out.close();
+        System.out.println(dictionaryFile + ": dictionary " + Integer.toHexString(dictionary.getId()) + " from "
+                + samples.size() + " samples");
+    }
+
+    public static void archive(String archiveFile, String[] files, ForkJoinPool pool, boolean shared)
+            throws IOException {
+        ArrayList<File> inputs = new ArrayList<File>();
+        ArrayList<String> names = new ArrayList<String>();
+
+        for (String file : files) {
+            File root = new File(file);
+            int from = inputs.size();
+            collectFiles(root, inputs);
+
+            for (int i = from; i < inputs.size(); i++) {
+                names.add(entryName(root, inputs.get(i)));
+            }
+        }
+
+        HuffmanTree sharedTree = null;
+
+        if (shared) {
+            CharCounter counts = new CharCounter();
+
+            for (File input : inputs) {
+                FileChannel in = FileChannel.open(input.toPath(), StandardOpenOption.READ);
+                long size = in.size();
+
+                for (long pos = 0; pos < size; pos += BitUtils.MAP_WINDOW) {
+                    counts.count(in.map(FileChannel.MapMode.READ_ONLY, pos, Math.min(BitUtils.MAP_WINDOW, size - pos)), pool);
+                }
+
+                in.close();
+            }
+
+            sharedTree = new HuffmanTree(counts, HuffmanTree.MAX_CODE_LENGTH);
+        }
+
+        OutputStream fout = new BufferedOutputStream(Channels.newOutputStream(openForWriting(archiveFile)));
+        HZIPArchiveWriter writer = new HZIPArchiveWriter(fout, pool, sharedTree);
+
+        for (int i = 0; i < inputs.size(); i++) {
+            FileChannel in = FileChannel.open(inputs.get(i).toPath(), StandardOpenOption.READ);
+            long size = in.size();
+            writer.putNextEntry(names.get(i));
+
+            for (long pos = 0; pos < size; pos += BitUtils.MAP_WINDOW) {
+                writer.write(in.map(FileChannel.MapMode.READ_ONLY, pos, Math.min(BitUtils.MAP_WINDOW, size - pos)));
+            }
+
+            in.close();
+        }
+
+        writer.close();
+    }
+
+    public static void list(String archiveFile) throws IOException {
+        HZIPArchive archive = new HZIPArchive(FileChannel.open(Paths.get(archiveFile), StandardOpenOption.READ));
+
+        for (HZIPArchiveEntry entry : archive.getEntries()) {
+            System.out.println(entry.getSize() + "\t" + entry.getCompressedSize() + "\t" + entry.getName());
+        }
+
+        archive.close();
+    }
+
+    public static void extract(String archiveFile, String[] names) throws IOException {
+        extract(archiveFile, names, new File("."));
+    }
+
+    public static void extract(String archiveFile, String[] names, File directory) throws IOException {
+        HZIPArchive archive = new HZIPArchive(FileChannel.open(Paths.get(archiveFile), StandardOpenOption.READ));
+        List<HZIPArchiveEntry> entries = archive.getEntries();
+
+        if (names.length > 0) {
+            entries = new ArrayList<HZIPArchiveEntry>();
+
+            for (String name : names) {
+                HZIPArchiveEntry entry = archive.getEntry(name);
+
+                if (entry == null) {
+                    System.out.println("No entry " + name + " in " + archiveFile);
+                } else {
+                    entries.add(entry);
+                }
+            }
+        }
+
+        for (HZIPArchiveEntry entry : entries) {
+            Path name = Paths.get(entry.getName() + ".uc").normalize();
+
+            if (name.isAbsolute() || name.startsWith("..")) {
+                System.out.println("Skipping unsafe entry " + entry.getName());
+                continue;
+            }
+
+            Path target = directory.toPath().resolve(name);
+
+            if (target.getParent() != null) {
+                Files.createDirectories(target.getParent());
+            }
+
+            OutputStream out = new BufferedOutputStream(Channels.newOutputStream(openForWriting(target.toString())));
+            archive.extract(entry, out);
+            out.close();
+        }
+
+        archive.close();
     }
 
     public static void main(String[] args) throws IOException {
         if (args.length < 2) {
-            System.out.println("Usage: java Hzip -[cu] files");
+            System.out.println(USAGE);
 
             return;
         }
 
         String option = args[0];
+        int threads = 0;
+        boolean blocks = false;
+        boolean lz = false;
+        int coder = -1;
+        boolean shared = false;
+        HuffmanDictionary dictionary = null;
+        boolean verbose = false;
+        int first = 1;
+
+        while (first < args.length && args[first].startsWith("-")) {
+            if (args[first].equals("-j") && first + 1 < args.length) {
+                threads = parseThreads(args[first + 1]);
+
+                if (threads <= 0) {
+                    System.out.println(USAGE);
 
-        for (int i = 1; i < args.length; i++) {
-            String nextFile = args[i];
+                    return;
+                }
 
-            if (option.equals("-c")) {
-                compress(nextFile);
-            } else if (option.equals("-u")) {
-                uncompress(nextFile);
+                first += 2;
+            } else if (args[first].equals("-v")) {
+                verbose = true;
+                first++;
+            } else if (args[first].equals("--blocks")) {
+                blocks = true;
+                first++;
+            } else if (args[first].equals("--lz")) {
+                lz = true;
+                first++;
+            } else if (args[first].equals("--rans")) {
+                coder = HZIPFormat.RANS_CODER;
+                first++;
+            } else if (args[first].equals("--order1")) {
+                coder = HZIPFormat.CONTEXT_CODER;
+                first++;
+            } else if (args[first].equals("--dict") && first + 1 < args.length) {
+                InputStream in = new BufferedInputStream(new FileInputStream(args[first + 1]));
+                dictionary = HuffmanDictionary.read(in);
+                in.close();
+                HuffmanDictionary.register(dictionary);
+                first += 2;
+            } else if (args[first].equals("--shared")) {
+                shared = true;
+                first++;
             } else {
-                System.out.println("Usage: java Hzip -[cu] files");
+                break;
+            }
+        }
+
+        if (first == args.length) {
+            System.out.println(USAGE);
+
+            return;
+        }
+
+        if (option.equals("-c") && threads > 0 && (lz || coder >= 0 || dictionary != null)) {
+            System.out.println("-j only applies to the default Huffman and --blocks formats and cannot be combined with "
+                    + "--lz, --rans, --order1 or --dict");
+
+            return;
+        }
+
+        if (option.equals("-l")) {
+            list(args[first]);
+
+            return;
+        }
+
+        if (option.equals("-d")) {
+            train(args[first], Arrays.copyOfRange(args, first + 1, args.length));
+
+            return;
+        }
+
+        if (option.equals("-x")) {
+            extract(args[first], Arrays.copyOfRange(args, first + 1, args.length));
+
+            return;
+        }
+
+        if (System.getProperty("com.sun.management.jmxremote") != null
+                || System.getProperty("com.sun.management.jmxremote.port") != null) {
+            try {
+                HZIPStats.registerMBeans();
+            } catch (JMException e) {
+                System.out.println("Cannot register HZIP statistics: " + e.getMessage());
+            }
+        }
+
+        ForkJoinPool pool = threads > 0 ? new ForkJoinPool(threads) : null;
+
+        try {
+            if (option.equals("-a")) {
+                archive(args[first], Arrays.copyOfRange(args, first + 1, args.length),
+                        pool != null ? pool : ForkJoinPool.commonPool(), shared);
 
                 return;
             }
+
+            for (int i = first; i < args.length; i++) {
+                String nextFile = args[i];
+                HZIPStats stats = null;
+
+                if (option.equals("-c")) {
+                    if (lz) {
+                        stats = compress(nextFile, HZIPFormat.LZ);
+                    } else if (dictionary != null) {
+                        stats = compress(nextFile, dictionary);
+                    } else if (coder >= 0) {
+                        stats = compress(nextFile, EntropyCoders.get(coder));
+                    } else if (blocks) {
+                        stats = compressBlocks(nextFile, pool != null ? pool : ForkJoinPool.commonPool());
+                    } else {
+                        stats = compress(nextFile, pool);
+                    }
+                } else if (option.equals("-u")) {
+                    stats = uncompress(nextFile, pool);
+                } else if (option.equals("-t")) {
+                    verify(nextFile);
+                } else {
+                    System.out.println(USAGE);
+
+                    return;
+                }
+
+                if (verbose && stats != null) {
+                    System.out.println(nextFile + ": " + stats);
+                }
+            }
+        } finally {
+            if (pool != null) {
+                pool.shutdown();
+            }
         }
     }
 
+    private static int parseThreads(String value) {
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private static String entryName(File root, File input) {
+        Path name = root.isDirectory() ? root.toPath().relativize(input.toPath()) : input.toPath().getFileName();
+
+        return name.toString().replace(File.separatorChar, '/');
+    }
+
+    private static void collectFiles(File file, List<File> files) {
+        if (!file.isDirectory()) {
+            files.add(file);
+
+            return;
+        }
+
+        File[] children = file.listFiles();
+
+        if (children == null) {
+            return;
+        }
+
+        Arrays.sort(children);
+
+        for (File child : children) {
+            collectFiles(child, files);
+        }
+    }
+
+    private static FileChannel openForWriting(String file) throws IOException {
+        return FileChannel.open(Paths.get(file), StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.WRITE);
+    }
+
+    private static OutputStream buffered(FileChannel out) {
+        return new BufferedOutputStream(Channels.newOutputStream(out));
+    }
+
+    private interface StreamFactory {
+
+        HZIPStream open(FileChannel in, FileChannel out) throws IOException;
+
+    }
+
 }
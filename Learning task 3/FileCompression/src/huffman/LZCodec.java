@@ -0,0 +1,259 @@
+package huffman;
+
+import java.io.*;
+import java.util.Arrays;
+
+public class LZCodec implements EntropyCoder {
+
+    public static final int WINDOW_SIZE = 1 << 15;
+    public static final int MIN_MATCH = 3;
+    public static final int MAX_MATCH = 258;
+    public static final int LITERAL_ALPHABET = 286;
+    public static final int DISTANCE_ALPHABET = 30;
+    private static final int FIRST_LENGTH_CODE = 257;
+    private static final int HASH_BITS = 15;
+    private static final int MAX_CHAIN = 64;
+    private static final int NICE_MATCH = 128;
+    private static final int[] LENGTH_BASE = {3, 4, 5, 6, 7, 8, 9, 10, 11, 13, 15, 17, 19, 23, 27, 31, 35, 43, 51, 59,
+            67, 83, 99, 115, 131, 163, 195, 227, 258};
+    private static final int[] LENGTH_EXTRA = {0, 0, 0, 0, 0, 0, 0, 0, 1, 1, 1, 1, 2, 2, 2, 2, 3, 3, 3, 3, 4, 4, 4, 4,
+            5, 5, 5, 5, 0};
+    private static final int[] DISTANCE_BASE = {1, 2, 3, 4, 5, 7, 9, 13, 17, 25, 33, 49, 65, 97, 129, 193, 257, 385,
+            513, 769, 1025, 1537, 2049, 3073, 4097, 6145, 8193, 12289, 16385, 24577};
+    private static final int[] DISTANCE_EXTRA = {0, 0, 0, 0, 1, 1, 2, 2, 3, 3, 4, 4, 5, 5, 6, 6, 7, 7, 8, 8, 9, 9, 10,
+            10, 11, 11, 12, 12, 13, 13};
+    private static final int[] LENGTH_CODE = new int[MAX_MATCH + 1];
+    private static final int[] DISTANCE_CODE = new int[WINDOW_SIZE + 1];
+
+    static {
+        for (int code = 0; code < LENGTH_BASE.length; code++) {
+            for (int length = LENGTH_BASE[code]; length < LENGTH_BASE[code] + (1 << LENGTH_EXTRA[code]); length++) {
+                LENGTH_CODE[length] = code;
+            }
+        }
+
+        for (int code = 0; code < DISTANCE_BASE.length; code++) {
+            for (int distance = DISTANCE_BASE[code]; distance < DISTANCE_BASE[code] + (1 << DISTANCE_EXTRA[code]); distance++) {
+                DISTANCE_CODE[distance] = code;
+            }
+        }
+    }
+
+    private final int blockSize;
+    private byte[] window;
+    private int history;
+    private int[] head;
+    private int[] prev;
+
+    public LZCodec(int blockSize) {
+        this.blockSize = blockSize;
+        window = new byte[WINDOW_SIZE + blockSize];
+    }
+
+    public int getBlockSize() {
+        return blockSize;
+    }
+
+    public int getId() {
+        return HZIPFormat.LZ;
+    }
+
+    public byte[] encode(byte[] data, int off, int len) throws IOException {
+        if (head == null) {
+            head = new int[1 << HASH_BITS];
+            prev = new int[window.length];
+            Arrays.fill(head, -1);
+        }
+
+        System.arraycopy(data, off, window, history, len);
+        int end = history + len;
+        int[] literals = new int[len];
+        int[] distances = new int[len];
+        long[] literalCounts = new long[LITERAL_ALPHABET];
+        long[] distanceCounts = new long[DISTANCE_ALPHABET];
+        int tokens = 0;
+        int pos = history;
+
+        while (pos < end) {
+            int length = 0;
+            int distance = 0;
+
+            if (pos + MIN_MATCH <= end) {
+                int limit = Math.min(MAX_MATCH, end - pos);
+                int candidate = head[hash(pos)];
+                int chain = MAX_CHAIN;
+
+                while (candidate >= 0 && pos - candidate <= WINDOW_SIZE && chain-- > 0) {
+                    if (window[candidate + length] == window[pos + length]) {
+                        int matched = 0;
+
+                        while (matched < limit && window[candidate + matched] == window[pos + matched]) {
+                            matched++;
+                        }
+
+                        if (matched > length) {
+                            length = matched;
+                            distance = pos - candidate;
+
+                            if (length >= NICE_MATCH || length == limit) {
+                                break;
+                            }
+                        }
+                    }
+
+                    candidate = prev[candidate];
+                }
+            }
+
+            if (length >= MIN_MATCH) {
+                literals[tokens] = FIRST_LENGTH_CODE + length;
+                distances[tokens++] = distance;
+                literalCounts[FIRST_LENGTH_CODE + LENGTH_CODE[length]]++;
+                distanceCounts[DISTANCE_CODE[distance]]++;
+            } else {
+                length = 1;
+                literals[tokens++] = window[pos] & 0xff;
+                literalCounts[window[pos] & 0xff]++;
+            }
+
+            int next = pos + length;
+
+            for (int stop = Math.min(next, end - MIN_MATCH + 1); pos < stop; pos++) {
+                int h = hash(pos);
+                prev[pos] = head[h];
+                head[h] = pos;
+            }
+
+            pos = next;
+        }
+
+        HuffmanTree literalTree = new HuffmanTree(literalCounts, HuffmanTree.MAX_CODE_LENGTH);
+        HuffmanTree distanceTree = new HuffmanTree(distanceCounts, HuffmanTree.MAX_CODE_LENGTH);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(len / 2 + 128);
+        DataOutputStream dout = new DataOutputStream(bytes);
+        literalTree.writeEncodingTable(dout);
+        distanceTree.writeEncodingTable(dout);
+        BitOutputStream bout = new BitOutputStream(dout);
+
+        for (int i = 0; i < tokens; i++) {
+            int literal = literals[i];
+
+            if (literal < FIRST_LENGTH_CODE) {
+                bout.writeBits(literalTree.getCodeBits(literal), literalTree.getCodeLength(literal));
+                continue;
+            }
+
+            int length = literal - FIRST_LENGTH_CODE;
+            int lengthCode = LENGTH_CODE[length];
+            int symbol = FIRST_LENGTH_CODE + lengthCode;
+            bout.writeBits(literalTree.getCodeBits(symbol), literalTree.getCodeLength(symbol));
+            bout.writeBits(length - LENGTH_BASE[lengthCode], LENGTH_EXTRA[lengthCode]);
+            int distanceCode = DISTANCE_CODE[distances[i]];
+            bout.writeBits(distanceTree.getCodeBits(distanceCode), distanceTree.getCodeLength(distanceCode));
+            bout.writeBits(distances[i] - DISTANCE_BASE[distanceCode], DISTANCE_EXTRA[distanceCode]);
+        }
+
+        bout.close();
+        slide(end);
+
+        return bytes.toByteArray();
+    }
+
+    public byte[] encode(byte[] data, int off, int len, HZIPStats stats) throws IOException {
+        return encode(data, off, len);
+    }
+
+    public byte[] decode(byte[] payload, int len) throws IOException {
+        DataInputStream din = new DataInputStream(new ByteArrayInputStream(payload));
+        HuffmanTree literalTree = new HuffmanTree(LITERAL_ALPHABET);
+        literalTree.readEncodingTable(din);
+        HuffmanTree distanceTree = new HuffmanTree(DISTANCE_ALPHABET);
+        distanceTree.readEncodingTable(din);
+        HuffmanDecoder literals = new HuffmanDecoder(literalTree);
+        HuffmanDecoder distances = new HuffmanDecoder(distanceTree);
+        BitInputStream bin = new BitInputStream(din);
+        int end = history + len;
+        int pos = history;
+
+        while (pos < end) {
+            int symbol = literals.decode(bin);
+
+            if (symbol < 0) {
+                throw new EOFException("Block ends after " + (pos - history) + " of " + len + " bytes");
+            }
+
+            if (symbol < BitUtils.DIFF_BYTES) {
+                window[pos++] = (byte) symbol;
+                continue;
+            }
+
+            if (symbol < FIRST_LENGTH_CODE) {
+                throw new IOException("Corrupt LZ block: unexpected symbol " + symbol);
+            }
+
+            int lengthCode = symbol - FIRST_LENGTH_CODE;
+            int length = LENGTH_BASE[lengthCode] + readExtra(bin, LENGTH_EXTRA[lengthCode]);
+            int distanceCode = distances.decode(bin);
+
+            if (distanceCode < 0) {
+                throw new EOFException("Block ends after " + (pos - history) + " of " + len + " bytes");
+            }
+
+            int distance = DISTANCE_BASE[distanceCode] + readExtra(bin, DISTANCE_EXTRA[distanceCode]);
+
+            if (distance > pos || length > end - pos) {
+                throw new IOException("Corrupt LZ block: match of " + length + " at distance " + distance);
+            }
+
+            for (int i = 0; i < length; i++, pos++) {
+                window[pos] = window[pos - distance];
+            }
+        }
+
+        byte[] result = Arrays.copyOfRange(window, history, end);
+        slide(end);
+
+        return result;
+    }
+
+    private static int readExtra(BitInputStream bin, int count) throws IOException {
+        long bits = bin.readBits(count);
+
+        if (bits < 0) {
+            throw new EOFException("Block ends inside a match");
+        }
+
+        return (int) bits;
+    }
+
+    private int hash(int pos) {
+        int key = (window[pos] & 0xff) << 16 | (window[pos + 1] & 0xff) << 8 | (window[pos + 2] & 0xff);
+
+        return (key * 0x9E3779B1) >>> (32 - HASH_BITS);
+    }
+
+    private void slide(int end) {
+        int shift = Math.max(0, end - WINDOW_SIZE);
+        history = end - shift;
+
+        if (shift == 0) {
+            return;
+        }
+
+        System.arraycopy(window, shift, window, 0, history);
+
+        if (head == null) {
+            return;
+        }
+
+        for (int i = 0; i < head.length; i++) {
+            head[i] = head[i] >= shift ? head[i] - shift : -1;
+        }
+
+        for (int i = 0; i < history; i++) {
+            int p = prev[i + shift];
+            prev[i] = p >= shift ? p - shift : -1;
+        }
+    }
+
+}
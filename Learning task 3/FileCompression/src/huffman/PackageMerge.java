@@ -0,0 +1,100 @@
+package huffman;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+
+public class PackageMerge {
+
+    public static int[] codeLengths(long[] weights, int maxLength) {
+        int[] lengths = new int[weights.length];
+        ArrayList<Item> leaves = new ArrayList<Item>();
+
+        for (int i = 0; i < weights.length; i++) {
+            if (weights[i] > 0) {
+                leaves.add(new Item(weights[i], i, null, null));
+            }
+        }
+
+        if (leaves.size() == 1) {
+            lengths[leaves.get(0).symbol] = 1;
+        }
+
+        if (leaves.size() <= 1) {
+            return lengths;
+        }
+
+        if (maxLength < 31 && leaves.size() > 1 << maxLength) {
+            throw new IllegalArgumentException(leaves.size() + " symbols do not fit in " + maxLength + " bits");
+        }
+
+        Item[] sorted = leaves.toArray(new Item[leaves.size()]);
+        Arrays.sort(sorted, new Comparator<Item>() {
+            public int compare(Item a, Item b) {
+                return a.weight != b.weight ? Long.compare(a.weight, b.weight) : a.symbol - b.symbol;
+            }
+        });
+
+        Item[] current = sorted;
+
+        for (int level = 1; level < maxLength; level++) {
+            Item[] packages = new Item[current.length / 2];
+
+            for (int i = 0; i < packages.length; i++) {
+                Item left = current[2 * i];
+                Item right = current[2 * i + 1];
+                packages[i] = new Item(left.weight + right.weight, -1, left, right);
+            }
+
+            current = merge(sorted, packages);
+        }
+
+        for (int i = 0; i < 2 * sorted.length - 2; i++) {
+            current[i].addLengths(lengths);
+        }
+
+        return lengths;
+    }
+
+    private static Item[] merge(Item[] leaves, Item[] packages) {
+        Item[] result = new Item[leaves.length + packages.length];
+        int l = 0;
+        int p = 0;
+
+        for (int i = 0; i < result.length; i++) {
+            if (p == packages.length || (l < leaves.length && leaves[l].weight <= packages[p].weight)) {
+                result[i] = leaves[l++];
+            } else {
+                result[i] = packages[p++];
+            }
+        }
+
+        return result;
+    }
+
+    private static class Item {
+
+        private long weight;
+        private int symbol;
+        private Item left;
+        private Item right;
+
+        Item(long weight, int symbol, Item left, Item right) {
+            this.weight = weight;
+            this.symbol = symbol;
+            this.left = left;
+            this.right = right;
+        }
+
+        void addLengths(int[] lengths) {
+            if (left == null) {
+                lengths[symbol]++;
+            } else {
+                left.addLengths(lengths);
+                right.addLengths(lengths);
+            }
+        }
+
+    }
+
+}
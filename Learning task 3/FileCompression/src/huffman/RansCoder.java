@@ -0,0 +1,221 @@
+package huffman;
+
+import java.io.IOException;
+
+public class RansCoder implements EntropyCoder {
+
+    public static final int SCALE_BITS = 12;
+    private static final int TOTAL = 1 << SCALE_BITS;
+    private static final int LOWER_BOUND = 1 << 23;
+    private static final int TABLE_SIZE = BitUtils.DIFF_BYTES / 8 + 2 * BitUtils.DIFF_BYTES;
+
+    public int getId() {
+        return HZIPFormat.RANS_CODER;
+    }
+
+    public byte[] encode(byte[] data, int off, int len) {
+        return encode(data, off, len, null);
+    }
+
+    public byte[] encode(byte[] data, int off, int len, HZIPStats stats) {
+        CharCounter counts = new CharCounter();
+        counts.count(data, off, len);
+
+        if (stats != null) {
+            stats.addSymbols(counts);
+        }
+
+        int[] freqs = normalize(counts, len);
+        int[] cumulative = new int[BitUtils.DIFF_BYTES];
+
+        for (int i = 1; i < cumulative.length; i++) {
+            cumulative[i] = cumulative[i - 1] + freqs[i - 1];
+        }
+
+        byte[] out = new byte[TABLE_SIZE + 8 + 2 * len + 16];
+        int pos = out.length;
+        int[] states = {LOWER_BOUND, LOWER_BOUND};
+
+        for (int i = len - 1; i >= 0; i--) {
+            int symbol = data[off + i] & 0xff;
+            int freq = freqs[symbol];
+            long max = ((long) (LOWER_BOUND >>> SCALE_BITS) << 8) * freq;
+            int x = states[i & 1];
+
+            while (x >= max) {
+                out[--pos] = (byte) x;
+                x >>>= 8;
+            }
+
+            states[i & 1] = ((x / freq) << SCALE_BITS) + (x % freq) + cumulative[symbol];
+        }
+
+        for (int j = 1; j >= 0; j--) {
+            for (int i = 0; i < 4; i++) {
+                out[--pos] = (byte) (states[j] >>> (8 * i));
+            }
+        }
+
+        int table = writeTable(freqs, out);
+        byte[] result = new byte[table + out.length - pos];
+        System.arraycopy(out, 0, result, 0, table);
+        System.arraycopy(out, pos, result, table, out.length - pos);
+
+        return result;
+    }
+
+    public byte[] decode(byte[] payload, int len) throws IOException {
+        int[] freqs = new int[BitUtils.DIFF_BYTES];
+        int pos = readTable(payload, freqs);
+        byte[] symbols = new byte[TOTAL];
+        int[] steps = new int[TOTAL];
+
+        for (int s = 0, slot = 0; s < BitUtils.DIFF_BYTES; s++) {
+            for (int bias = 0; bias < freqs[s]; bias++, slot++) {
+                symbols[slot] = (byte) s;
+                steps[slot] = freqs[s] << 16 | bias;
+            }
+        }
+
+        if (pos + 8 > payload.length) {
+            throw new IOException("Corrupt rANS block: missing state");
+        }
+
+        int x0 = 0;
+        int x1 = 0;
+
+        for (int i = 0; i < 4; i++) {
+            x0 = (x0 << 8) | (payload[pos++] & 0xff);
+        }
+
+        for (int i = 0; i < 4; i++) {
+            x1 = (x1 << 8) | (payload[pos++] & 0xff);
+        }
+
+        byte[] result = new byte[len];
+        int i = 0;
+
+        try {
+            for (; i + 1 < len; i += 2) {
+                int slot0 = x0 & (TOTAL - 1);
+                int slot1 = x1 & (TOTAL - 1);
+                int step0 = steps[slot0];
+                int step1 = steps[slot1];
+                result[i] = symbols[slot0];
+                result[i + 1] = symbols[slot1];
+                x0 = (step0 >>> 16) * (x0 >>> SCALE_BITS) + (step0 & 0xffff);
+                x1 = (step1 >>> 16) * (x1 >>> SCALE_BITS) + (step1 & 0xffff);
+
+                while (x0 < LOWER_BOUND) {
+                    x0 = (x0 << 8) | (payload[pos++] & 0xff);
+                }
+
+                while (x1 < LOWER_BOUND) {
+                    x1 = (x1 << 8) | (payload[pos++] & 0xff);
+                }
+            }
+
+            if (i < len) {
+                int slot0 = x0 & (TOTAL - 1);
+                int step0 = steps[slot0];
+                result[i] = symbols[slot0];
+                x0 = (step0 >>> 16) * (x0 >>> SCALE_BITS) + (step0 & 0xffff);
+
+                while (x0 < LOWER_BOUND) {
+                    x0 = (x0 << 8) | (payload[pos++] & 0xff);
+                }
+            }
+        } catch (ArrayIndexOutOfBoundsException e) {
+            throw new IOException("Corrupt rANS block: ends after " + i + " of " + len + " bytes");
+        }
+
+        if (x0 != LOWER_BOUND || x1 != LOWER_BOUND || pos != payload.length) {
+            throw new IOException("Corrupt rANS block: final state does not match");
+        }
+
+        return result;
+    }
+
+    private static int[] normalize(CharCounter counts, int len) {
+        int[] freqs = new int[BitUtils.DIFF_BYTES];
+        int total = 0;
+        int largest = 0;
+
+        for (int i = 0; i < freqs.length; i++) {
+            long count = counts.getCount(i);
+
+            if (count == 0) {
+                continue;
+            }
+
+            freqs[i] = (int) Math.max(1, count * TOTAL / len);
+            total += freqs[i];
+
+            if (freqs[i] > freqs[largest]) {
+                largest = i;
+            }
+        }
+
+        freqs[largest] += TOTAL - total;
+
+        while (freqs[largest] < 1) {
+            int next = 0;
+
+            for (int i = 0; i < freqs.length; i++) {
+                if (i != largest && freqs[i] > freqs[next]) {
+                    next = i;
+                }
+            }
+
+            int moved = Math.min(freqs[next] - 1, 1 - freqs[largest]);
+            freqs[next] -= moved;
+            freqs[largest] += moved;
+        }
+
+        return freqs;
+    }
+
+    private static int writeTable(int[] freqs, byte[] out) {
+        int pos = BitUtils.DIFF_BYTES / 8;
+
+        for (int i = 0; i < freqs.length; i++) {
+            if (freqs[i] > 0) {
+                out[i >>> 3] |= (byte) (1 << (i & 7));
+                out[pos++] = (byte) ((freqs[i] - 1) >>> 8);
+                out[pos++] = (byte) (freqs[i] - 1);
+            }
+        }
+
+        return pos;
+    }
+
+    private static int readTable(byte[] payload, int[] freqs) throws IOException {
+        int pos = BitUtils.DIFF_BYTES / 8;
+        int total = 0;
+
+        if (payload.length < pos) {
+            throw new IOException("Corrupt rANS block: truncated frequency table");
+        }
+
+        for (int i = 0; i < freqs.length; i++) {
+            if ((payload[i >>> 3] & (1 << (i & 7))) == 0) {
+                continue;
+            }
+
+            if (pos + 2 > payload.length) {
+                throw new IOException("Corrupt rANS block: truncated frequency table");
+            }
+
+            freqs[i] = ((payload[pos] & 0xff) << 8 | (payload[pos + 1] & 0xff)) + 1;
+            total += freqs[i];
+            pos += 2;
+        }
+
+        if (total != TOTAL) {
+            throw new IOException("Corrupt rANS block: frequencies sum to " + total);
+        }
+
+        return pos;
+    }
+
+}
@@ -0,0 +1,178 @@
+package huffman;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.NonWritableChannelException;
+import java.nio.channels.SeekableByteChannel;
+import java.util.Arrays;
+
+public class SeekableHZIPChannel implements SeekableByteChannel {
+
+    private static final int HEADER_SIZE = 7;
+    private static final int TRAILER_SIZE = 8;
+    private static final int INDEX_ENTRY_SIZE = 12;
+    private static final int BLOCK_HEADER_SIZE = 12;
+    private SeekableByteChannel channel;
+    private EntropyCoder coder;
+    private int blockSize;
+    private long[] offsets;
+    private long[] starts;
+    private long position;
+    private int current = -1;
+    private byte[] block;
+
+    public SeekableHZIPChannel(SeekableByteChannel channel) throws IOException {
+        this.channel = channel;
+
+        if (channel.size() < HEADER_SIZE + 8 + TRAILER_SIZE) {
+            throw new IOException("Not an HZIP block container");
+        }
+
+        ByteBuffer header = readFully(0, HEADER_SIZE);
+
+        if (header.get() != HZIPFormat.MAGIC || header.get() != HZIPFormat.BLOCKS) {
+            throw new IOException("Not an HZIP block container");
+        }
+
+        int version = header.get() & 0xff;
+
+        if (version != HZIPFormat.BLOCKS_VERSION) {
+            throw new IOException("Unsupported HZIP block container version " + version);
+        }
+
+        coder = EntropyCoders.get(HZIPFormat.HUFFMAN_CODER);
+        blockSize = header.getInt();
+        long size = channel.size();
+        long indexOffset = readFully(size - TRAILER_SIZE, TRAILER_SIZE).getLong();
+
+        if (indexOffset < HEADER_SIZE || indexOffset > size - TRAILER_SIZE - 4) {
+            throw new IOException("Corrupt block index offset " + indexOffset);
+        }
+
+        int count = readFully(indexOffset, 4).getInt();
+
+        if (count < 0 || (long) count * INDEX_ENTRY_SIZE != size - TRAILER_SIZE - indexOffset - 4) {
+            throw new IOException("Corrupt block index");
+        }
+
+        ByteBuffer index = readFully(indexOffset + 4, count * INDEX_ENTRY_SIZE);
+        offsets = new long[count];
+        starts = new long[count + 1];
+
+        for (int i = 0; i < count; i++) {
+            offsets[i] = index.getLong();
+            int length = index.getInt();
+
+            if (length <= 0 || length > blockSize || offsets[i] < HEADER_SIZE || offsets[i] >= indexOffset) {
+                throw new IOException("Corrupt block index entry " + i);
+            }
+
+            starts[i + 1] = starts[i] + length;
+        }
+    }
+
+    public int read(ByteBuffer dst) throws IOException {
+        if (!isOpen()) {
+            throw new ClosedChannelException();
+        }
+
+        if (position >= size()) {
+            return -1;
+        }
+
+        int index = Arrays.binarySearch(starts, position);
+
+        if (index < 0) {
+            index = -index - 2;
+        }
+
+        loadBlock(index);
+        int blockPos = (int) (position - starts[index]);
+        int count = Math.min(dst.remaining(), block.length - blockPos);
+        dst.put(block, blockPos, count);
+        position += count;
+
+        return count;
+    }
+
+    public int write(ByteBuffer src) {
+        throw new NonWritableChannelException();
+    }
+
+    public long position() {
+        return position;
+    }
+
+    public SeekableHZIPChannel position(long newPosition) {
+        if (newPosition < 0) {
+            throw new IllegalArgumentException("Negative position " + newPosition);
+        }
+
+        position = newPosition;
+
+        return this;
+    }
+
+    public long size() {
+        return starts[starts.length - 1];
+    }
+
+    public SeekableHZIPChannel truncate(long size) {
+        throw new NonWritableChannelException();
+    }
+
+    public boolean isOpen() {
+        return channel.isOpen();
+    }
+
+    public void close() throws IOException {
+        block = null;
+        channel.close();
+    }
+
+    private void loadBlock(int index) throws IOException {
+        if (index == current) {
+            return;
+        }
+
+        ByteBuffer header = readFully(offsets[index], BLOCK_HEADER_SIZE);
+        int length = header.getInt();
+        int compressedLength = header.getInt();
+
+        if (length != starts[index + 1] - starts[index] || compressedLength < 0
+                || compressedLength > BlockCodec.maxPayloadLength(blockSize)) {
+            throw new IOException("Corrupt header in block " + index);
+        }
+
+        byte[] payload = new byte[compressedLength];
+        readFully(offsets[index] + BLOCK_HEADER_SIZE, ByteBuffer.wrap(payload));
+
+        if (BlockCodec.checksum(payload) != header.getInt()) {
+            throw new IOException("Checksum mismatch in block " + index);
+        }
+
+        block = coder.decode(payload, length);
+        current = index;
+    }
+
+    private ByteBuffer readFully(long offset, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        readFully(offset, buffer);
+        buffer.flip();
+
+        return buffer;
+    }
+
+    private void readFully(long offset, ByteBuffer buffer) throws IOException {
+        channel.position(offset);
+
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer) == -1) {
+                throw new EOFException("Unexpected end of HZIP container at " + channel.position());
+            }
+        }
+    }
+
+}
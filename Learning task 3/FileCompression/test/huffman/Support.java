@@ -58,6 +58,42 @@ public class Support {
             0x19, 0x6F, 0xBC, 0x7E, 0x0F, 0x75, 0x87, 0xCF, 0x88, 0xFE, 0x44, 0x66, 0x2D
     };
 
+    int[] compactEncoding1 = {
+            0x02, 0x00, 0x96, 0x00, 0x16, 0x01, 0x13, 0x70, 0x04, 0x60, 0x18, 0x77, 0x00, 0x57, 0x00, 0x87,
+            0x70, 0x0B, 0x46, 0x64, 0x36, 0x66, 0x50, 0x00, 0x74, 0x64, 0x50, 0x01, 0x54, 0x46, 0x00, 0x05,
+            0x00, 0x05, 0x08, 0x57, 0x9F, 0xAC, 0xED, 0x42, 0x2F, 0xAE, 0x81, 0xD5, 0x6A, 0x47, 0x75, 0xE4,
+            0x49, 0x1C, 0xD5, 0x94, 0x8E, 0x55, 0x9A, 0x71, 0xCC, 0xD3, 0xAB, 0x34, 0x0D, 0x58, 0x21, 0x94,
+            0xA2, 0xA8, 0x8E, 0x3C, 0x89, 0xBD, 0xD0, 0x34, 0x50, 0x77, 0x3C, 0xF3, 0xA4, 0xB7, 0x31, 0x4F,
+            0xEF, 0xC5, 0x0C, 0x91, 0xE2, 0x8A, 0xC8, 0x56, 0xFD, 0xC0, 0xB2, 0xC9, 0x1D, 0xC4, 0xA8, 0x37,
+            0x22, 0xC5, 0x15, 0x2B, 0xA3, 0x28, 0x71, 0x71, 0x9E, 0xBE, 0xF2, 0x23, 0xAE, 0x81, 0x53, 0x5C,
+            0x21, 0xAE, 0xE8, 0x5C, 0xCC, 0xA0, 0xE2, 0x1B, 0x71, 0x7B, 0x16, 0x43, 0x27, 0xB4, 0xF0, 0xF1,
+            0x07
+    };
+
+    int[] compactEncoding2 = {
+            0x02, 0x01, 0xF2, 0x00, 0xC5, 0x02, 0x45, 0x00, 0xB4, 0x00, 0x15, 0x50, 0x00, 0x55, 0x40, 0x01,
+            0x40, 0x01, 0x40, 0x01, 0x53, 0x40, 0x03, 0x50, 0x6D, 0x50, 0x16, 0x50, 0x7D, 0xBB, 0x70, 0x61,
+            0x9C, 0x69, 0x11, 0x97, 0x95, 0x39, 0xA8, 0xA7, 0x6A, 0x1F
+    };
+
+    int[] framedEncoding1 = {
+            0x03, 0x00, 0x96, 0x00, 0x16, 0x01, 0x13, 0x70, 0x04, 0x60, 0x18, 0x77, 0x00, 0x57, 0x00, 0x87,
+            0x70, 0x0B, 0x46, 0x64, 0x36, 0x66, 0x50, 0x00, 0x74, 0x64, 0x50, 0x01, 0x54, 0x46, 0x00, 0x05,
+            0x00, 0x05, 0x08, 0x57, 0xD1, 0x02, 0x5C, 0x76, 0xF0, 0xFA, 0xA5, 0x9F, 0xAC, 0xED, 0x42, 0x2F,
+            0xAE, 0x81, 0xD5, 0x6A, 0x47, 0x75, 0xE4, 0x49, 0x1C, 0xD5, 0x94, 0x8E, 0x55, 0x9A, 0x71, 0xCC,
+            0xD3, 0xAB, 0x34, 0x0D, 0x58, 0x21, 0x94, 0xA2, 0xA8, 0x8E, 0x3C, 0x89, 0xBD, 0xD0, 0x34, 0x50,
+            0x77, 0x3C, 0xF3, 0xA4, 0xB7, 0x31, 0x4F, 0xEF, 0xC5, 0x0C, 0x91, 0xE2, 0x8A, 0xC8, 0x56, 0xFD,
+            0xC0, 0xB2, 0xC9, 0x1D, 0xC4, 0xA8, 0x37, 0x22, 0xC5, 0x15, 0x2B, 0xA3, 0x28, 0x71, 0x71, 0x9E,
+            0xBE, 0xF2, 0x23, 0xAE, 0x81, 0x53, 0x5C, 0x21, 0xAE, 0xE8, 0x5C, 0xCC, 0xA0, 0xE2, 0x1B, 0x71,
+            0x7B, 0x16, 0x43, 0x27, 0xB4, 0xF0, 0x01
+    };
+
+    int[] framedEncoding2 = {
+            0x03, 0x01, 0xF2, 0x00, 0xC5, 0x02, 0x45, 0x00, 0xB4, 0x00, 0x15, 0x50, 0x00, 0x55, 0x40, 0x01,
+            0x40, 0x01, 0x40, 0x01, 0x53, 0x40, 0x03, 0x50, 0x6D, 0x50, 0x16, 0x50, 0x37, 0x0D, 0x0A, 0xB6,
+            0xC4, 0x79, 0x7D, 0xBB, 0x70, 0x61, 0x9C, 0x69, 0x11, 0x97, 0x95, 0x39, 0xA8, 0xA7, 0x6A
+    };
+
     int[] text1Encoding = {1, 0, 0, 0, 0, 0, 0, 0, 0, 0, 3, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0,
             0, 0, 0, 0, 0, 28, 1, 0, 0, 0, 0, 0, 3, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0,
             0, 0, 0, 0, 0, 0, 1, 1, 0, 0, 0, 0, 0, 0, 1, 0, 0, 0, 0, 0, 0, 0, 0, 0, 1, 1, 0, 0, 0, 0, 0, 0,
@@ -0,0 +1,73 @@
+package huffman;
+
+import junit.framework.TestCase;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+import java.util.Random;
+
+public class TestBitStreams extends TestCase {
+
+    public void testWriteBitsMatchesWriteBit() throws Exception {
+        Random random = new Random(42);
+        ByteArrayOutputStream single = new ByteArrayOutputStream();
+        ByteArrayOutputStream packed = new ByteArrayOutputStream();
+        BitOutputStream singleOut = new BitOutputStream(single);
+        BitOutputStream packedOut = new BitOutputStream(packed);
+
+        for (int i = 0; i < 100000; i++) {
+            int count = random.nextInt(57);
+            long bits = random.nextLong() & ((1L << count) - 1);
+
+            for (int j = 0; j < count; j++) {
+                singleOut.writeBit((int) (bits >>> j) & 1);
+            }
+
+            packedOut.writeBits(bits, count);
+        }
+
+        singleOut.close();
+        packedOut.close();
+
+        assertTrue(Arrays.equals(single.toByteArray(), packed.toByteArray()));
+    }
+
+    public void testReadBitsRoundTrip() throws Exception {
+        Random random = new Random(7);
+        int[] counts = new int[50000];
+        long[] values = new long[counts.length];
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        BitOutputStream out = new BitOutputStream(bytes);
+
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] = 1 + random.nextInt(BitInputStream.MAX_PEEK_BITS);
+            values[i] = random.nextLong() & ((1L << counts[i]) - 1);
+            out.writeBits(values[i], counts[i]);
+        }
+
+        out.close();
+
+        BitInputStream in = new BitInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+
+        for (int i = 0; i < counts.length; i++) {
+            if (i % 3 == 0) {
+                assertEquals(values[i], in.peekBits(counts[i]));
+                in.skipBits(counts[i]);
+            } else if (i % 3 == 1) {
+                assertEquals(values[i], in.readBits(counts[i]));
+            } else {
+                for (int j = 0; j < counts[i]; j++) {
+                    assertEquals((values[i] >>> j) & 1, in.readBit());
+                }
+            }
+        }
+
+        while (in.bufferedBits() % BitUtils.BITS_PER_BYTES != 0) {
+            assertEquals(0, in.readBit());
+        }
+
+        assertEquals(-1, in.readBit());
+    }
+
+}
@@ -0,0 +1,60 @@
+package huffman;
+
+import junit.framework.TestCase;
+
+import java.io.ByteArrayInputStream;
+import java.nio.ByteBuffer;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+public class TestCharCounter extends TestCase {
+
+    public void testParallelCountsMatchSequential() throws Exception {
+        Random random = new Random(11);
+        byte[] data = new byte[(5 << 20) + 3];
+
+        for (int i = 0; i < data.length; i++) {
+            data[i] = (byte) (random.nextInt(3) == 0 ? random.nextInt(256) : 'e');
+        }
+
+        long[] expected = new long[BitUtils.DIFF_BYTES + 1];
+
+        for (byte b : data) {
+            expected[b & 0xff]++;
+        }
+
+        expected[HuffmanTree.END] = 1;
+
+        ForkJoinPool pool = new ForkJoinPool(4);
+        CharCounter streamed = new CharCounter(new ByteArrayInputStream(data));
+        CharCounter array = new CharCounter();
+        array.count(data, 0, data.length, pool);
+        CharCounter direct = new CharCounter();
+        ByteBuffer buffer = ByteBuffer.allocateDirect(data.length);
+        buffer.put(data).position(1);
+        direct.count(buffer, pool);
+        direct.setCount(data[0] & 0xff, direct.getCount(data[0] & 0xff) + 1);
+        pool.shutdown();
+
+        for (int i = 0; i < BitUtils.DIFF_BYTES; i++) {
+            assertEquals(expected[i], streamed.getCount(i));
+            assertEquals(expected[i], array.getCount(i));
+            assertEquals(expected[i], direct.getCount(i));
+        }
+
+        assertEquals(1, streamed.getCount(HuffmanTree.END));
+    }
+
+    public void testLongCounts() {
+        CharCounter counts = new CharCounter();
+        counts.setCount('a', 3L << 31);
+        counts.setCount('b', 1);
+        counts.setCount(HuffmanTree.END, 1);
+        HuffmanTree tree = new HuffmanTree(counts, HuffmanTree.MAX_CODE_LENGTH);
+
+        assertEquals(3L << 31, counts.getCount('a'));
+        assertEquals(1, tree.getCodeLength('a'));
+        assertEquals(2, tree.getCodeLength('b'));
+    }
+
+}
@@ -78,7 +78,7 @@ public class TestFileCompression {
 
         original = new File("./data/" + fileNames[0] + ".dat");
         compressed = new File("./data/" + fileNames[0] + ".dat.huf");
-        assertTrue(original.length() < compressed.length());
+        assertTrue(original.length() > compressed.length());
         percentages[0] = (int) ((compressed.length() * 100) / original.length());
 
         try {
@@ -89,7 +89,7 @@ public class TestFileCompression {
 
         original = new File("./data/" + fileNames[1] + ".dat");
         compressed = new File("./data/" + fileNames[1] + ".dat.huf");
-        assertTrue(original.length() < compressed.length());
+        assertTrue(original.length() > compressed.length());
         percentages[1] = (int) ((compressed.length() * 100) / original.length());
 
         try {
@@ -0,0 +1,86 @@
+package huffman;
+
+import junit.framework.TestCase;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Random;
+
+public class TestHuffmanCodec extends TestCase {
+
+    public void testRoundTripHeapAndDirect() throws Exception {
+        Random random = new Random(17);
+        HuffmanCodec codec = new HuffmanCodec();
+
+        for (int size : new int[] {0, 1, 7, 100, 4096, 100003}) {
+            byte[] data = new byte[size];
+
+            for (int i = 0; i < size; i++) {
+                data[i] = (byte) (random.nextInt(4) == 0 ? random.nextInt(256) : 'a' + random.nextInt(4));
+            }
+
+            for (boolean direct : new boolean[] {false, true}) {
+                ByteBuffer src = allocate(size + 3, direct);
+                src.position(3);
+                src.put(data).flip().position(3);
+                ByteBuffer compressed = allocate(HuffmanCodec.maxCompressedLength(size), !direct);
+                int written = codec.compress(src, compressed);
+                assertFalse(src.hasRemaining());
+                assertEquals(written, compressed.position());
+                compressed.flip();
+                ByteBuffer restored = allocate(size, direct);
+                assertEquals(size, codec.decompress(compressed, restored));
+                assertFalse(compressed.hasRemaining());
+                assertTrue(Arrays.equals(data, toBytes(restored)));
+            }
+        }
+    }
+
+    public void testConsecutiveFrames() throws Exception {
+        HuffmanCodec codec = new HuffmanCodec();
+        byte[] first = "aaaaaaaaaaaaaaaaaaab".getBytes();
+        byte[] second = "the quick brown fox jumps over the lazy dog".getBytes();
+        ByteBuffer frames = ByteBuffer.allocate(HuffmanCodec.maxCompressedLength(first.length)
+                + HuffmanCodec.maxCompressedLength(second.length));
+        codec.compress(ByteBuffer.wrap(first), frames);
+        codec.compress(ByteBuffer.wrap(second), frames);
+        frames.flip();
+
+        ByteBuffer restored = ByteBuffer.allocate(first.length);
+        codec.decompress(frames, restored);
+        assertTrue(Arrays.equals(first, restored.array()));
+        restored = ByteBuffer.allocate(second.length);
+        codec.decompress(frames, restored);
+        assertTrue(Arrays.equals(second, restored.array()));
+        assertFalse(frames.hasRemaining());
+    }
+
+    public void testTruncatedFrameIsRejected() throws Exception {
+        HuffmanCodec codec = new HuffmanCodec();
+        byte[] data = "abracadabra abracadabra".getBytes();
+        ByteBuffer compressed = ByteBuffer.allocate(HuffmanCodec.maxCompressedLength(data.length));
+        codec.compress(ByteBuffer.wrap(data), compressed);
+        compressed.flip().limit(compressed.limit() - 2);
+
+        try {
+            codec.decompress(compressed, ByteBuffer.allocate(data.length));
+            fail("Expected a truncated frame to be rejected");
+        } catch (IOException e) {
+            assertTrue(e.getMessage().startsWith("Corrupt frame"));
+        }
+    }
+
+    private static ByteBuffer allocate(int size, boolean direct) {
+        return direct ? ByteBuffer.allocateDirect(size) : ByteBuffer.allocate(size);
+    }
+
+    private static byte[] toBytes(ByteBuffer buffer) {
+        buffer.flip();
+        byte[] bytes = new byte[buffer.remaining()];
+        buffer.get(bytes);
+
+        return bytes;
+    }
+
+}
@@ -50,4 +50,96 @@ public class TestHuffmanTree extends TestCase {
         }
     }
 
+    public void testGetCodeBits() {
+        HuffmanTree ht = new HuffmanTree();
+        support.prepareTest(support.rawEncoding1, support.testFileEnc);
+
+        try {
+            InputStream fin = new BufferedInputStream(new FileInputStream(support.testFileEnc));
+            ht.readEncodingTable(new DataInputStream(fin));
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+
+        for (int i = 0; i < support.values.length; i++) {
+            long bits = ht.getCodeBits(support.values[i]);
+            String temp = "";
+
+            for (int j = 0; j < ht.getCodeLength(support.values[i]); j++) {
+                temp += (bits >>> j) & 1;
+            }
+
+            assertEquals(temp, support.codes[i]);
+        }
+    }
+
+    public void testLengthLimitedCanonicalCodes() {
+        CharCounter counts = new CharCounter();
+        int a = 1;
+        int b = 1;
+
+        for (int i = 1; i <= 30; i++) {
+            counts.setCount(i, a);
+            int next = a + b;
+            a = b;
+            b = next;
+        }
+
+        HuffmanTree unlimited = new HuffmanTree(counts);
+        HuffmanTree limited = new HuffmanTree(counts, HuffmanTree.MAX_CODE_LENGTH);
+        int deepest = 0;
+        long kraft = 0;
+
+        for (int i = 1; i <= 30; i++) {
+            deepest = Math.max(deepest, unlimited.getCodeLength(i));
+            assertTrue(limited.getCodeLength(i) <= HuffmanTree.MAX_CODE_LENGTH);
+            kraft += 1L << (HuffmanTree.MAX_CODE_LENGTH - limited.getCodeLength(i));
+
+            String code = "";
+
+            for (int j = 0; j < limited.getCodeLength(i); j++) {
+                code += (limited.getCodeBits(i) >>> j) & 1;
+            }
+
+            assertEquals(i, limited.getChar(code));
+        }
+
+        assertTrue(deepest > HuffmanTree.MAX_CODE_LENGTH);
+        assertEquals(1L << HuffmanTree.MAX_CODE_LENGTH, kraft);
+    }
+
+    public void testCanonicalTreeFromLengths() {
+        int[] lengths = new int[BitUtils.DIFF_BYTES + 1];
+        lengths['a'] = 1;
+        lengths['b'] = 2;
+        lengths['c'] = 3;
+        lengths[HuffmanTree.END] = 3;
+        HuffmanTree ht = new HuffmanTree(lengths);
+
+        assertEquals("0", codeString(ht, 'a'));
+        assertEquals("10", codeString(ht, 'b'));
+        assertEquals("110", codeString(ht, 'c'));
+        assertEquals(3, ht.getCodeLengths()[HuffmanTree.END]);
+    }
+
+    public void testGetCharInvalidCode() {
+        int[] lengths = new int[BitUtils.DIFF_BYTES + 1];
+        lengths['a'] = 1;
+        HuffmanTree ht = new HuffmanTree(lengths);
+
+        assertEquals('a', ht.getChar("0"));
+        assertEquals(HuffmanTree.ERROR, ht.getChar("1"));
+        assertEquals(HuffmanTree.ERROR, ht.getChar("10"));
+    }
+
+    private String codeString(HuffmanTree ht, int ch) {
+        String code = "";
+
+        for (int bit : ht.getCode(ch)) {
+            code += bit;
+        }
+
+        return code;
+    }
+
 }
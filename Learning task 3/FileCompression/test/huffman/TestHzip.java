@@ -2,7 +2,23 @@ package huffman;
 
 import junit.framework.TestCase;
 
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
 
 public class TestHzip extends TestCase {
 
@@ -18,7 +34,7 @@ public class TestHzip extends TestCase {
         }
 
         int[] result = support.readFile(support.testFileEnc);
-        assertTrue(Arrays.equals(support.rawEncoding1, result));
+        assertTrue(Arrays.equals(support.framedEncoding1, result));
 
         support.prepareTest(support.text2, support.testFilePlain);
 
@@ -29,7 +45,7 @@ public class TestHzip extends TestCase {
         }
 
         result = support.readFile(support.testFileEnc);
-        assertTrue(Arrays.equals(support.rawEncoding2, result));
+        assertTrue(Arrays.equals(support.framedEncoding2, result));
     }
 
     public void testUncompress() {
@@ -53,6 +69,17 @@ public class TestHzip extends TestCase {
 
         result = support.readFile(support.testFileDec);
         assertTrue(Arrays.equals(support.text2, result));
+
+        support.prepareTest(support.compactEncoding1, support.testFileEnc);
+
+        try {
+            Hzip.uncompress(support.testFileEnc);
+        } catch (Exception e) {
+            System.err.println("Fatal error: could not Uncompress.");
+        }
+
+        result = support.readFile(support.testFileDec);
+        assertTrue(Arrays.equals(support.text1, result));
     }
 
     public void testChain() {
@@ -80,4 +107,437 @@ public class TestHzip extends TestCase {
         assertTrue(Arrays.equals(support.text2, result));
     }
 
+    public void testStreamingMatchesBuffered() throws Exception {
+        byte[] input = new byte[support.text1.length];
+
+        for (int i = 0; i < input.length; i++) {
+            input[i] = (byte) support.text1[i];
+        }
+
+        ByteArrayOutputStream buffered = new ByteArrayOutputStream();
+        HZIPOutputStream hzout = new HZIPOutputStream(buffered);
+        hzout.write(input);
+        hzout.close();
+
+        ByteArrayOutputStream streamed = new ByteArrayOutputStream();
+        hzout = new HZIPOutputStream(streamed, new CharCounter(new ByteArrayInputStream(input)));
+        hzout.write(input);
+        hzout.close();
+
+        assertTrue(Arrays.equals(buffered.toByteArray(), streamed.toByteArray()));
+    }
+
+    public void testCounterWithoutEnd() throws Exception {
+        byte[] input = "a counter filled by hand has no end of stream count".getBytes("US-ASCII");
+        CharCounter counts = new CharCounter();
+        counts.count(input, 0, input.length);
+        assertEquals(0, counts.getCount(HuffmanTree.END));
+
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        HZIPOutputStream hzout = new HZIPOutputStream(compressed, counts);
+        hzout.write(input);
+        hzout.close();
+        compressed.write(new byte[16]);
+
+        HZIPInputStream hzin = new HZIPInputStream(new ByteArrayInputStream(compressed.toByteArray()));
+        byte[] result = new byte[input.length];
+        new DataInputStream(hzin).readFully(result);
+
+        assertTrue(Arrays.equals(input, result));
+        assertEquals(-1, hzin.read());
+    }
+
+    public void testBlocksRoundTrip() throws Exception {
+        byte[] input = new byte[10000];
+
+        for (int i = 0; i < input.length; i++) {
+            input[i] = (byte) support.text2[i % support.text2.length];
+        }
+
+        input[17] = 0;
+        ForkJoinPool pool = new ForkJoinPool(2);
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        HZIPBlockOutputStream hzout = new HZIPBlockOutputStream(compressed, pool, 1000);
+        hzout.write(input);
+        hzout.close();
+
+        assertTrue(hzout.getStats().getTreeDepth() > 0);
+        assertTrue(hzout.getStats().getEntropy() > 0 && hzout.getStats().getAverageCodeLength() > 0);
+
+        HZIPInputStream sequential = new HZIPInputStream(new ByteArrayInputStream(compressed.toByteArray()));
+        HZIPInputStream parallel = new HZIPInputStream(new ByteArrayInputStream(compressed.toByteArray()), pool);
+        byte[] first = new byte[input.length];
+        byte[] second = new byte[input.length];
+        new DataInputStream(sequential).readFully(first);
+        new DataInputStream(parallel).readFully(second);
+        pool.shutdown();
+
+        assertTrue(Arrays.equals(input, first));
+        assertTrue(Arrays.equals(input, second));
+        assertEquals(-1, sequential.read());
+        assertEquals(-1, parallel.read());
+    }
+
+    public void testCorruptBlockIsDetected() throws Exception {
+        byte[] input = new byte[10000];
+
+        for (int i = 0; i < input.length; i++) {
+            input[i] = (byte) support.text2[i % support.text2.length];
+        }
+
+        ForkJoinPool pool = new ForkJoinPool(2);
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        HZIPBlockOutputStream hzout = new HZIPBlockOutputStream(compressed, pool, 1000);
+        hzout.write(input);
+        hzout.close();
+        pool.shutdown();
+
+        byte[] bytes = compressed.toByteArray();
+        assertEquals(input.length, new HZIPInputStream(new ByteArrayInputStream(bytes)).verify());
+
+        bytes[bytes.length - (4 + 4 + 10 * 12 + 8) - 1] ^= 0x10;
+
+        try {
+            new HZIPInputStream(new ByteArrayInputStream(bytes)).verify();
+            fail("Corrupt block was not detected");
+        } catch (IOException e) {
+            assertEquals("Checksum mismatch in block 9", e.getMessage());
+        }
+    }
+
+    public void testEntropyCoders() throws Exception {
+        Random random = new Random(5);
+        byte[] input = new byte[50000];
+
+        for (int i = 0; i < input.length; i++) {
+            input[i] = (byte) (random.nextInt(20) == 0 ? random.nextInt(256) : 'a' + random.nextInt(2));
+        }
+
+        int[] sizes = new int[2];
+        int[] coders = {HZIPFormat.HUFFMAN_CODER, HZIPFormat.RANS_CODER};
+
+        for (int i = 0; i < coders.length; i++) {
+            ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+            HZIPOutputStream hzout = new HZIPOutputStream(compressed, EntropyCoders.get(coders[i]), 20000);
+            hzout.write(input);
+            hzout.close();
+            sizes[i] = compressed.size();
+
+            HZIPInputStream hzin = new HZIPInputStream(new ByteArrayInputStream(compressed.toByteArray()));
+            byte[] result = new byte[input.length];
+            new DataInputStream(hzin).readFully(result);
+
+            assertTrue(Arrays.equals(input, result));
+            assertEquals(-1, hzin.read());
+        }
+
+        assertTrue(sizes[1] < sizes[0]);
+    }
+
+    public void testContextCoder() throws Exception {
+        Random random = new Random(9);
+        byte[] input = new byte[60000];
+
+        for (int i = 1; i < input.length; i++) {
+            input[i] = (byte) (random.nextInt(10) == 0 ? 'a' + random.nextInt(26) : 'a' + (input[i - 1] * 7 + 3) % 26);
+        }
+
+        EntropyCoder order0 = EntropyCoders.get(HZIPFormat.HUFFMAN_CODER);
+        EntropyCoder order1 = EntropyCoders.get(HZIPFormat.CONTEXT_CODER);
+        byte[] encoded = order1.encode(input, 0, input.length);
+
+        assertTrue(Arrays.equals(input, order1.decode(encoded, input.length)));
+        assertTrue(encoded.length < order0.encode(input, 0, input.length).length / 2);
+
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        HZIPOutputStream hzout = new HZIPOutputStream(compressed, order1, 7000);
+        hzout.write(input);
+        hzout.close();
+
+        HZIPInputStream hzin = new HZIPInputStream(new ByteArrayInputStream(compressed.toByteArray()));
+        byte[] result = new byte[input.length];
+        new DataInputStream(hzin).readFully(result);
+
+        assertTrue(Arrays.equals(input, result));
+        assertEquals(-1, hzin.read());
+    }
+
+    public void testDictionary() throws Exception {
+        ArrayList<byte[]> samples = new ArrayList<byte[]>();
+
+        for (int i = 0; i < 200; i++) {
+            samples.add(("{\"id\":" + i + ",\"name\":\"sensor-" + i % 7 + "\",\"value\":" + i * 31 % 1000 + "}").getBytes());
+        }
+
+        HuffmanDictionary trained = HuffmanDictionary.train(samples);
+        ByteArrayOutputStream file = new ByteArrayOutputStream();
+        trained.write(file);
+        HuffmanDictionary dictionary = HuffmanDictionary.read(new ByteArrayInputStream(file.toByteArray()));
+        assertEquals(trained.getId(), dictionary.getId());
+        HuffmanDictionary.register(dictionary);
+
+        byte[] message = "{\"id\":4711,\"name\":\"sensor-3\",\"value\":42}\u00ff".getBytes("ISO-8859-1");
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        HZIPOutputStream hzout = new HZIPOutputStream(compressed, dictionary);
+        hzout.write(message);
+        hzout.close();
+
+        ByteArrayOutputStream embedded = new ByteArrayOutputStream();
+        hzout = new HZIPOutputStream(embedded);
+        hzout.write(message);
+        hzout.close();
+
+        assertTrue(compressed.size() < message.length);
+        assertTrue(compressed.size() < embedded.size());
+
+        HZIPInputStream hzin = new HZIPInputStream(new ByteArrayInputStream(compressed.toByteArray()));
+        byte[] result = new byte[message.length];
+        new DataInputStream(hzin).readFully(result);
+
+        assertTrue(Arrays.equals(message, result));
+        assertEquals(-1, hzin.read());
+
+        byte[] unknown = compressed.toByteArray();
+        unknown[2] ^= 1;
+
+        try {
+            new HZIPInputStream(new ByteArrayInputStream(unknown));
+            fail("Expected an unknown dictionary to be rejected");
+        } catch (IOException e) {
+            assertTrue(e.getMessage().startsWith("Unknown dictionary"));
+        }
+    }
+
+    public void testStats() throws Exception {
+        HZIPStats.registerMBeans();
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName name = new ObjectName("huffman:type=HZIPStats,name=compression");
+        long before = (Long) server.getAttribute(name, "BytesIn");
+        byte[] input = new byte[30000];
+
+        for (int i = 0; i < input.length; i++) {
+            input[i] = (byte) support.text1[i % support.text1.length];
+        }
+
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        HZIPOutputStream hzout = new HZIPOutputStream(compressed);
+        hzout.write(input);
+        hzout.close();
+        HZIPStats stats = hzout.getStats();
+
+        assertEquals(input.length, stats.getBytesIn());
+        assertEquals(compressed.size(), stats.getBytesOut());
+        assertEquals((double) compressed.size() / input.length, stats.getRatio(), 1e-9);
+        assertTrue(stats.getTreeDepth() > 0 && stats.getTreeDepth() <= HuffmanTree.MAX_CODE_LENGTH);
+        assertTrue(stats.getEntropy() > 0 && stats.getEntropy() <= stats.getAverageCodeLength());
+        assertTrue(stats.getAverageCodeLength() <= stats.getEntropy() + 1);
+        assertEquals(compressed.size() * 8.0 / input.length, stats.getBitsPerByte(), 1e-9);
+        assertTrue((Long) server.getAttribute(name, "BytesIn") >= before + input.length);
+
+        HZIPInputStream hzin = new HZIPInputStream(new ByteArrayInputStream(compressed.toByteArray()));
+        assertEquals(input.length, hzin.verify());
+        hzin.close();
+
+        assertEquals(compressed.size(), hzin.getStats().getBytesIn());
+        assertEquals(input.length, hzin.getStats().getBytesOut());
+    }
+
+    public void testSeekableChannel() throws Exception {
+        byte[] input = new byte[25000];
+
+        for (int i = 0; i < input.length; i++) {
+            input[i] = (byte) (support.text1[i % support.text1.length] + i / 1000);
+        }
+
+        File file = File.createTempFile("seekable", ".huf");
+        file.deleteOnExit();
+        ForkJoinPool pool = new ForkJoinPool(2);
+        HZIPBlockOutputStream hzout = new HZIPBlockOutputStream(new FileOutputStream(file), pool, 1000);
+        hzout.write(input);
+        hzout.close();
+        pool.shutdown();
+
+        SeekableHZIPChannel channel = new SeekableHZIPChannel(Files.newByteChannel(file.toPath()));
+        assertEquals(input.length, channel.size());
+
+        ByteBuffer range = ByteBuffer.allocate(2500);
+        channel.position(12345);
+
+        while (range.hasRemaining()) {
+            assertTrue(channel.read(range) > 0);
+        }
+
+        assertTrue(Arrays.equals(Arrays.copyOfRange(input, 12345, 14845), range.array()));
+
+        range.clear();
+        channel.position(999).read(range);
+        assertEquals(1, range.position());
+        assertEquals(input[999], range.get(0));
+
+        channel.position(input.length);
+        assertEquals(-1, channel.read(ByteBuffer.allocate(1)));
+        channel.close();
+    }
+
+    public void testArchiveRoundTrip() throws Exception {
+        byte[] text1 = toBytes(support.text1);
+        byte[] text2 = toBytes(support.text2);
+        ForkJoinPool pool = new ForkJoinPool(2);
+        CharCounter counts = new CharCounter();
+        counts.count(text1, 0, text1.length);
+        counts.count(text2, 0, text2.length);
+        HuffmanTree[] tables = {null, new HuffmanTree(counts, HuffmanTree.MAX_CODE_LENGTH)};
+
+        for (HuffmanTree sharedTree : tables) {
+            File file = File.createTempFile("archive", ".hza");
+            file.deleteOnExit();
+            HZIPArchiveWriter writer = new HZIPArchiveWriter(new FileOutputStream(file), pool, sharedTree, 100);
+            writer.putNextEntry("one");
+            writer.write(text1, 0, text1.length);
+            writer.putNextEntry("empty");
+            writer.putNextEntry("dir/two");
+            writer.write(text2, 0, text2.length);
+            writer.close();
+
+            HZIPArchive archive = new HZIPArchive(Files.newByteChannel(file.toPath()));
+            assertEquals(3, archive.getEntries().size());
+            assertEquals("empty", archive.getEntries().get(1).getName());
+            assertEquals(text2.length, archive.getEntry("dir/two").getSize());
+
+            ByteArrayOutputStream two = new ByteArrayOutputStream();
+            archive.extract(archive.getEntry("dir/two"), two);
+            ByteArrayOutputStream empty = new ByteArrayOutputStream();
+            archive.extract(archive.getEntry("empty"), empty);
+            ByteArrayOutputStream one = new ByteArrayOutputStream();
+            archive.extract(archive.getEntry("one"), one);
+            archive.close();
+
+            assertTrue(Arrays.equals(text2, two.toByteArray()));
+            assertEquals(0, empty.size());
+            assertTrue(Arrays.equals(text1, one.toByteArray()));
+        }
+
+        pool.shutdown();
+    }
+
+    public void testArchiveAbsoluteDirectory() throws Exception {
+        byte[] text1 = toBytes(support.text1);
+        byte[] text2 = toBytes(support.text2);
+        File dir = Files.createTempDirectory("hzip").toFile().getAbsoluteFile();
+        File sub = new File(dir, "sub");
+        assertTrue(sub.mkdir());
+        Files.write(new File(dir, "one").toPath(), text1);
+        Files.write(new File(sub, "two").toPath(), text2);
+        File file = File.createTempFile("archive", ".hza");
+        file.deleteOnExit();
+
+        Hzip.archive(file.getPath(), new String[] {dir.getPath()}, ForkJoinPool.commonPool(), false);
+
+        HZIPArchive archive = new HZIPArchive(Files.newByteChannel(file.toPath()));
+        assertEquals(2, archive.getEntries().size());
+        assertEquals("one", archive.getEntries().get(0).getName());
+        assertEquals("sub/two", archive.getEntries().get(1).getName());
+        archive.close();
+
+        File out = Files.createTempDirectory("hzip").toFile();
+        Hzip.extract(file.getPath(), new String[0], out);
+
+        assertTrue(Arrays.equals(text1, Files.readAllBytes(new File(out, "one.uc").toPath())));
+        assertTrue(Arrays.equals(text2, Files.readAllBytes(new File(out, "sub/two.uc").toPath())));
+    }
+
+    public void testAdaptiveRoundTrip() throws Exception {
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        HZIPOutputStream hzout = new HZIPOutputStream(compressed, HZIPFormat.ADAPTIVE, 50);
+
+        for (int i = 0; i < support.text1.length; i++) {
+            hzout.write(support.text1[i]);
+        }
+
+        hzout.write(0);
+        hzout.flush();
+        int flushed = compressed.size();
+        hzout.close();
+
+        HZIPInputStream hzin = new HZIPInputStream(new ByteArrayInputStream(compressed.toByteArray(), 0, flushed));
+
+        for (int i = 0; i < support.text1.length; i++) {
+            assertEquals(support.text1[i], hzin.read());
+        }
+
+        assertEquals(0, hzin.read());
+        assertEquals(-1, hzin.read());
+    }
+
+    public void testLzRoundTrip() throws Exception {
+        Random random = new Random(3);
+        ByteArrayOutputStream log = new ByteArrayOutputStream();
+
+        while (log.size() < 200000) {
+            String line = "2015-03-17 12:" + random.nextInt(60) + " INFO request " + random.nextInt(1000) + " served\n";
+            log.write(line.getBytes("US-ASCII"));
+        }
+
+        byte[] input = log.toByteArray();
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        HZIPOutputStream hzout = new HZIPOutputStream(compressed, new LZCodec(30000));
+        hzout.write(input, 0, 1000);
+        hzout.flush();
+        hzout.write(input, 1000, input.length - 1000);
+        hzout.close();
+
+        ByteArrayOutputStream huffman = new ByteArrayOutputStream();
+        hzout = new HZIPOutputStream(huffman, new CharCounter(new ByteArrayInputStream(input)));
+        hzout.write(input);
+        hzout.close();
+
+        HZIPInputStream hzin = new HZIPInputStream(new ByteArrayInputStream(compressed.toByteArray()));
+        byte[] result = new byte[input.length];
+        new DataInputStream(hzin).readFully(result);
+
+        assertTrue(Arrays.equals(input, result));
+        assertEquals(-1, hzin.read());
+        assertTrue(compressed.size() * 2 < huffman.size());
+    }
+
+
+    public void testFramedStreamChecksums() throws Exception {
+        byte[] input = toBytes(support.text1);
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        HZIPOutputStream hzout = new HZIPOutputStream(compressed);
+        hzout.write(input);
+        hzout.close();
+
+        byte[] bytes = compressed.toByteArray();
+        HZIPInputStream hzin = new HZIPInputStream(new ByteArrayInputStream(bytes));
+        assertEquals(input.length, hzin.verify());
+        assertTrue(hzin.hasChecksums());
+
+        try {
+            new HZIPInputStream(new ByteArrayInputStream(bytes, 0, bytes.length - 30)).verify();
+            fail("Truncated stream was not detected");
+        } catch (IOException e) {
+            assertTrue(e instanceof EOFException);
+        }
+
+        bytes[bytes.length - 1] ^= 0x10;
+
+        try {
+            new HZIPInputStream(new ByteArrayInputStream(bytes)).verify();
+            fail("Corrupt block was not detected");
+        } catch (IOException e) {
+            assertEquals("Checksum mismatch in block 0", e.getMessage());
+        }
+    }
+
+    private byte[] toBytes(int[] text) {
+        byte[] bytes = new byte[text.length];
+
+        for (int i = 0; i < text.length; i++) {
+            bytes[i] = (byte) text[i];
+        }
+
+        return bytes;
+    }
+
 }
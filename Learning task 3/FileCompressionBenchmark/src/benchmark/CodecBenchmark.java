@@ -0,0 +1,62 @@
+package benchmark;
+
+import huffman.HuffmanCodec;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(value = 2, jvmArgsAppend = {"-Xms1g", "-Xmx1g"})
+public class CodecBenchmark {
+
+    @Param({"text", "random", "skewed", "identical"})
+    public String corpus;
+
+    @Param({"false", "true"})
+    public boolean direct;
+
+    private HuffmanCodec codec;
+    private ByteBuffer input;
+    private ByteBuffer compressed;
+    private ByteBuffer output;
+
+    @Setup
+    public void setUp() {
+        byte[] data = Corpus.create(corpus);
+        codec = new HuffmanCodec();
+        input = allocate(data.length);
+        input.put(data).flip();
+        compressed = allocate(HuffmanCodec.maxCompressedLength(data.length));
+        output = allocate(data.length);
+        codec.compress(input, compressed);
+    }
+
+    @Benchmark
+    public int compress(CompressionBenchmark.BenchmarkBytes bytes) {
+        input.rewind();
+        compressed.clear();
+        bytes.bytes += input.remaining();
+
+        return codec.compress(input, compressed);
+    }
+
+    @Benchmark
+    public int decompress(CompressionBenchmark.BenchmarkBytes bytes) throws IOException {
+        compressed.rewind();
+        output.clear();
+        bytes.bytes += output.remaining();
+
+        return codec.decompress(compressed, output);
+    }
+
+    private ByteBuffer allocate(int size) {
+        return direct ? ByteBuffer.allocateDirect(size) : ByteBuffer.allocate(size);
+    }
+
+}
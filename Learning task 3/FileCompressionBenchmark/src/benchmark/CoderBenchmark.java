@@ -0,0 +1,50 @@
+package benchmark;
+
+import huffman.EntropyCoder;
+import huffman.EntropyCoders;
+import huffman.HZIPFormat;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(value = 2, jvmArgsAppend = {"-Xms1g", "-Xmx1g"})
+public class CoderBenchmark {
+
+    @Param({"text", "random", "skewed", "identical"})
+    public String corpus;
+
+    @Param({"" + HZIPFormat.HUFFMAN_CODER, "" + HZIPFormat.RANS_CODER, "" + HZIPFormat.CONTEXT_CODER})
+    public int coderId;
+
+    private EntropyCoder coder;
+    private byte[] input;
+    private byte[] encoded;
+
+    @Setup
+    public void setUp() throws IOException {
+        coder = EntropyCoders.get(coderId);
+        input = Corpus.create(corpus);
+        encoded = coder.encode(input, 0, input.length);
+    }
+
+    @Benchmark
+    public byte[] encode(CompressionBenchmark.BenchmarkBytes bytes) throws IOException {
+        bytes.bytes += input.length;
+
+        return coder.encode(input, 0, input.length);
+    }
+
+    @Benchmark
+    public byte[] decode(CompressionBenchmark.BenchmarkBytes bytes) throws IOException {
+        bytes.bytes += input.length;
+
+        return coder.decode(encoded, input.length);
+    }
+
+}
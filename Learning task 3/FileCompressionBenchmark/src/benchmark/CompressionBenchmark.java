@@ -0,0 +1,93 @@
+package benchmark;
+
+import huffman.CharCounter;
+import huffman.HZIPInputStream;
+import huffman.HZIPOutputStream;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(value = 2, jvmArgsAppend = {"-Xms1g", "-Xmx1g"})
+public class CompressionBenchmark {
+
+    @Param({"text", "random", "skewed", "identical"})
+    public String corpus;
+
+    private byte[] input;
+    private byte[] compressed;
+    private byte[] output;
+    private CharCounter counts;
+    private ByteArrayOutputStream sink;
+
+    @Setup
+    public void setUp() throws IOException {
+        input = Corpus.create(corpus);
+        counts = new CharCounter(new ByteArrayInputStream(input));
+        sink = new ByteArrayOutputStream(2 * input.length);
+        HZIPOutputStream hzout = new HZIPOutputStream(sink, counts);
+        hzout.write(input);
+        hzout.close();
+        compressed = sink.toByteArray();
+        output = new byte[input.length];
+    }
+
+    @Benchmark
+    public int compress(BenchmarkBytes bytes) throws IOException {
+        sink.reset();
+        HZIPOutputStream hzout = new HZIPOutputStream(sink, counts);
+        hzout.write(input);
+        hzout.close();
+        bytes.bytes += input.length;
+
+        return sink.size();
+    }
+
+    @Benchmark
+    public int countAndCompress(BenchmarkBytes bytes) throws IOException {
+        sink.reset();
+        HZIPOutputStream hzout = new HZIPOutputStream(sink, new CharCounter(new ByteArrayInputStream(input)));
+        hzout.write(input);
+        hzout.close();
+        bytes.bytes += input.length;
+
+        return sink.size();
+    }
+
+    @Benchmark
+    public int decompress(BenchmarkBytes bytes) throws IOException {
+        HZIPInputStream hzin = new HZIPInputStream(new ByteArrayInputStream(compressed));
+        int total = 0;
+        int read;
+
+        while ((read = hzin.read(output, total, output.length - total)) > 0) {
+            total += read;
+        }
+
+        hzin.close();
+        bytes.bytes += total;
+
+        return total;
+    }
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class BenchmarkBytes {
+
+        public long bytes;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            bytes = 0;
+        }
+
+    }
+
+}
@@ -0,0 +1,72 @@
+package benchmark;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Random;
+
+public class Corpus {
+
+    public static final int SIZE = 1 << 20;
+    private static final long SEED = 20150317L;
+    private static final String TEXT = "Storm winds blow on the golden barley\r\n"
+            + "Birds lie dead on the fields of Athenry\r\n"
+            + "I'll stand strong 'cause you stand beside me\r\n"
+            + "Take my hand and we'll dance until we die!";
+
+    public static byte[] create(String name) {
+        if (name.equals("text")) {
+            return text();
+        } else if (name.equals("random")) {
+            return random();
+        } else if (name.equals("skewed")) {
+            return skewed();
+        } else if (name.equals("identical")) {
+            return identical();
+        }
+
+        throw new IllegalArgumentException("Unknown corpus " + name);
+    }
+
+    private static byte[] text() {
+        byte[] line = TEXT.getBytes(StandardCharsets.ISO_8859_1);
+        byte[] data = new byte[SIZE];
+
+        for (int i = 0; i < data.length; i++) {
+            data[i] = line[i % line.length];
+        }
+
+        return data;
+    }
+
+    private static byte[] random() {
+        byte[] data = new byte[SIZE];
+        new Random(SEED).nextBytes(data);
+
+        return data;
+    }
+
+    private static byte[] skewed() {
+        Random random = new Random(SEED);
+        byte[] data = new byte[SIZE];
+
+        for (int i = 0; i < data.length; i++) {
+            int symbol = 0;
+
+            while (symbol < 255 && random.nextInt(4) != 0) {
+                symbol++;
+            }
+
+            data[i] = (byte) symbol;
+        }
+
+        return data;
+    }
+
+    private static byte[] identical() {
+        byte[] data = new byte[SIZE];
+        Arrays.fill(data, (byte) 'x');
+
+        return data;
+    }
+
+}
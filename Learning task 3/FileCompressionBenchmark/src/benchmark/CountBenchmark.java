@@ -0,0 +1,62 @@
+package benchmark;
+
+import huffman.CharCounter;
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(value = 2, jvmArgsAppend = {"-Xms1g", "-Xmx1g"})
+public class CountBenchmark {
+
+    @Param({"text", "random", "skewed", "identical"})
+    public String corpus;
+
+    private byte[] input;
+    private ByteBuffer direct;
+    private ForkJoinPool pool;
+
+    @Setup
+    public void setUp() {
+        input = Corpus.create(corpus);
+        direct = ByteBuffer.allocateDirect(input.length);
+        direct.put(input).flip();
+        pool = new ForkJoinPool();
+    }
+
+    @TearDown
+    public void tearDown() {
+        pool.shutdown();
+    }
+
+    @Benchmark
+    public CharCounter countArray() {
+        CharCounter counts = new CharCounter();
+        counts.count(input, 0, input.length);
+
+        return counts;
+    }
+
+    @Benchmark
+    public CharCounter countArrayParallel() {
+        CharCounter counts = new CharCounter();
+        counts.count(input, 0, input.length, pool);
+
+        return counts;
+    }
+
+    @Benchmark
+    public CharCounter countDirectParallel() {
+        CharCounter counts = new CharCounter();
+        counts.count(direct, pool);
+
+        return counts;
+    }
+
+}
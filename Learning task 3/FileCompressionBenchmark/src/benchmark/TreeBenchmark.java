@@ -0,0 +1,47 @@
+package benchmark;
+
+import huffman.CharCounter;
+import huffman.HuffmanDecoder;
+import huffman.HuffmanTree;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(2)
+public class TreeBenchmark {
+
+    @Param({"text", "random", "skewed", "identical"})
+    public String corpus;
+
+    private CharCounter counts;
+    private HuffmanTree tree;
+
+    @Setup
+    public void setUp() throws IOException {
+        counts = new CharCounter(new ByteArrayInputStream(Corpus.create(corpus)));
+        tree = new HuffmanTree(counts, HuffmanTree.MAX_CODE_LENGTH);
+    }
+
+    @Benchmark
+    public HuffmanTree buildTree() {
+        return new HuffmanTree(counts);
+    }
+
+    @Benchmark
+    public HuffmanTree buildCanonicalTree() {
+        return new HuffmanTree(counts, HuffmanTree.MAX_CODE_LENGTH);
+    }
+
+    @Benchmark
+    public HuffmanDecoder buildDecoder() {
+        return new HuffmanDecoder(tree);
+    }
+
+}
@@ -22,7 +22,7 @@ public class DelayController extends JMenu implements ActionListener {
         super("Delay");
 
         this.environment = environment;
-        this.delay = 5;
+        this.delay = MobileRobot.DEFAULT_DELAY;
 
         JPanel pnlDelay = new JPanel();
         pnlDelay.setLayout(new GridBagLayout());
@@ -98,7 +98,7 @@ public class DelayController extends JMenu implements ActionListener {
         }
 
         if (this.delay > 0) {
-            MobileRobot.delay = this.delay;
+            environment.getRobot().setDelay(this.delay);
         }
     }
 
@@ -3,27 +3,28 @@ package models.device;
 import models.environment.Environment;
 import models.environment.Position;
 import models.robot.MobileRobot;
+import models.simulation.SimulationClock;
 import utils.ANSI;
 
 import java.awt.*;
 import java.io.PrintWriter;
-import java.util.ArrayList;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
 
-public abstract class Device implements Runnable {
+public abstract class Device {
 
     protected final Environment environment;
     protected final MobileRobot robot;
     protected final Position localPosition;
-    protected final ArrayList<String> commands;
-    private final Object lock = new Object();
+    protected final Queue<String> commands;
     private final String name;
     private final Polygon shape;
     protected Position robotPosition;
     protected Color backgroundColor = Color.GRAY;
     protected Color foregroundColor = Color.BLACK;
-    protected boolean running;
-    protected boolean executingCommand;
+    protected volatile boolean executingCommand;
     private PrintWriter output;
+    private volatile SimulationClock clock;
 
     protected Device(String name, MobileRobot robot, Position local, Environment environment) {
         this.name = name;
@@ -34,10 +35,9 @@ public abstract class Device implements Runnable {
         this.shape = new Polygon();
         this.robotPosition = new Position();
 
-        this.running = true;
         this.executingCommand = false;
 
-        this.commands = new ArrayList<>();
+        this.commands = new ConcurrentLinkedQueue<>();
         this.output = null;
 
         robot.readPosition(this.robotPosition);
@@ -50,8 +50,10 @@ public abstract class Device implements Runnable {
     public boolean sendCommand(String command) {
         commands.add(command);
 
-        synchronized (lock) {
-            lock.notify();
+        SimulationClock clock = this.clock;
+
+        if (clock != null) {
+            clock.wake();
         }
 
         return true;
@@ -64,36 +66,35 @@ public abstract class Device implements Runnable {
             System.out.println(this.name + " output not initialized");
         }
 
-        System.out.println(ANSI.ANSI_YELLOW + data);
+        if (!isHeadless()) {
+            System.out.println(ANSI.ANSI_YELLOW + data);
+        }
     }
 
     public void setOutput(PrintWriter output) {
         this.output = output;
     }
 
-    public void run() {
-        System.out.println(ANSI.ANSI_GREEN + "Device " + this.name + " running");
-
-        do {
-            try {
-                if (executingCommand) {
-                    synchronized (this) {
-                        Thread.sleep(MobileRobot.delay);
-                    }
-                } else if (commands.size() > 0) {
-                    String command = commands.remove(0);
-                    executeCommand(command);
-                } else {
-                    synchronized (lock) {
-                        lock.wait();
-                    }
-                }
-
-                nextStep();
-            } catch (InterruptedException ie) {
-                System.err.println("Device " + name + ": Run was interrupted.");
-            }
-        } while (this.running);
+    public void setClock(SimulationClock clock) {
+        this.clock = clock;
+    }
+
+    protected boolean isHeadless() {
+        SimulationClock clock = this.clock;
+
+        return clock != null && clock.isHeadless();
+    }
+
+    public boolean isIdle() {
+        return !executingCommand && commands.isEmpty();
+    }
+
+    public void tick() {
+        if (!executingCommand && !commands.isEmpty()) {
+            executeCommand(commands.poll());
+        }
+
+        nextStep();
     }
 
     public Position getRobotPosition() {
@@ -1,13 +1,11 @@
 package models.device;
 
 import models.environment.Environment;
-import models.environment.Obstacle;
 import models.environment.Position;
 import models.robot.MobileRobot;
 
 import java.awt.*;
 import java.awt.event.ActionEvent;
-import java.awt.geom.Line2D;
 import java.awt.geom.Point2D;
 import java.util.ArrayList;
 
@@ -84,9 +82,10 @@ public abstract class Sensor extends Device {
     }
 
     /**
-     * Reads the distance.
+     * Reads the distance to the nearest obstacle edge along the beam.
+     * Only the edges in the grid cells covered by the beam's bounding box are tested.
      *
-     * @param first The first.
+     * @param first Has no effect for the laser, which always reports the nearest hit.
      * @return The read distance.
      */
     public double read(boolean first) {
@@ -97,23 +96,7 @@ public abstract class Sensor extends Device {
         robotPosition.rotateAroundAxis(centre);
         robotPosition.rotateAroundAxis(front);
 
-        double minDistance = -1.0;
-
-        for (int i = 0; i < environment.getObstacles().size(); i++) {
-            Obstacle obstacle = environment.getObstacles().get(i);
-
-            if (!obstacle.getOpaque()) {
-                double dist = pointToObstacle(obstacle.getPolygon(), centre, front, first);
-
-                if (minDistance == -1.0 || (dist > 0 && dist < minDistance)) {
-                    minDistance = dist;
-
-                    if (minDistance > -1 && first) {
-                        return minDistance;
-                    }
-                }
-            }
-        }
+        double minDistance = environment.getObstacleIndex().nearestHit(centre, front);
 
         if (minDistance > 0) {
             return minDistance;
@@ -122,67 +105,6 @@ public abstract class Sensor extends Device {
         return -1.0;
     }
 
-    /**
-     * Calculates the point to an obstacle.
-     *
-     * @param polygon The polygon.
-     * @param centre The centre.
-     * @param front The front.
-     * @param first The first.
-     * @return The point to an obstacle.
-     */
-    public double pointToObstacle(Polygon polygon, Point2D centre, Point2D front, boolean first) {
-        int j;
-        double minDistance = -1.0;
-        double dist;
-        double px, py;
-        double x1, y1, x2, y2;
-        double m1, q1, m2, q2;
-        Line2D.Double beam = new Line2D.Double(centre, front);
-
-        for (int i = 0; i < polygon.npoints; i++) {
-            j = i + 1;
-
-            if (j == polygon.npoints) {
-                j = 0;
-            }
-
-            x1 = polygon.xpoints[i];
-            y1 = polygon.ypoints[i];
-            x2 = polygon.xpoints[j];
-            y2 = polygon.ypoints[j];
-
-            if (beam.intersectsLine(x1, y1, x2, y2)) {
-                if (centre.getX() == front.getX()) {
-                    px = centre.getX();
-                    py = (y2 - y1) / (x2 - x1) * (px - x1) + y1;
-                } else if (x1 == x2) {
-                    px = x1;
-                    py = (front.getY() - centre.getY()) / (front.getX() - centre.getX()) * (px - centre.getX()) + centre.getY();
-                } else {
-                    m1 = (y2 - y1) / (x2 - x1);
-                    q1 = y1 - m1 * x1;
-                    m2 = (front.getY() - centre.getY()) / (front.getX() - centre.getX());
-                    q2 = centre.getY() - m2 * centre.getX();
-                    px = (q2 - q1) / (m1 - m2);
-                    py = m1 * px + q1;
-                }
-
-                dist = Point2D.Double.distance(centre.getX(), centre.getY(), px, py);
-
-                if (minDistance == -1.0 || minDistance > dist) {
-                    minDistance = dist;
-                }
-
-                if (first && minDistance > 0.0) {
-                    return minDistance;
-                }
-            }
-        }
-
-        return minDistance;
-    }
-
     /**
      * Executes the command.
      *
@@ -237,7 +159,10 @@ public abstract class Sensor extends Device {
         }
 
         if (detect) {
-            System.out.println("detect = true");
+            if (!isHeadless()) {
+                System.out.println("detect = true");
+            }
+
             double distance = this.read(true);
 
             if (distance > -1.0) {
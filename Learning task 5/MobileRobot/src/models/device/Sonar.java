@@ -9,6 +9,8 @@ import utils.ANSI;
 import java.awt.*;
 import java.awt.event.ActionEvent;
 import java.awt.geom.Point2D;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * Class representing a sonar.
@@ -19,6 +21,11 @@ import java.awt.geom.Point2D;
  */
 public class Sonar extends Sensor {
 
+    /**
+     * The obstacles probed during the last read, highlighted until the next step or until the sonar is idle.
+     */
+    private final List<Obstacle> highlighted = new ArrayList<>();
+
     /**
      * Sonar constructor.
      * Creates a new sonar.
@@ -57,16 +64,9 @@ public class Sonar extends Sensor {
             Obstacle obstacle = environment.getObstacles().get(i);
             if (obstacle.getOpaque()) {
                 obstacle.setOpaqueBackgroundColor(Color.PINK);
+                highlighted.add(obstacle);
                 double dist = pointToObstacle(obstacle.getPolygon(), centre, front, first);
 
-                try {
-                    Thread.sleep(10);
-                } catch (InterruptedException e) {
-                    e.printStackTrace();
-                }
-
-                obstacle.setOpaqueBackgroundColor(Color.magenta);
-
                 if (minDistance == -1.0 || (dist > 0 && dist < minDistance)) {
                     minDistance = dist;
 
@@ -93,7 +93,6 @@ public class Sonar extends Sensor {
      * @param first The first.
      * @return The point to an obstacle.
      */
-    @Override
     public double pointToObstacle(Polygon polygon, Point2D centre, Point2D front, boolean first) {
         double minDistance = -1.0;
         double dist;
@@ -108,7 +107,9 @@ public class Sonar extends Sensor {
                 Point2D p = new Point(x1, y1);
                 dist = centre.distance(p);
 
-                System.out.println(ANSI.ANSI_RED + "center x: " + centre.getX() + "\t x: " + x1 + " = " + (centre.getX() - x1) + "\t\t\t center y: " + centre.getY() + "\t y: " + y1 + " = " + (centre.getY() - y1) + "\t\t\t distance: " + dist);
+                if (!isHeadless()) {
+                    System.out.println(ANSI.ANSI_RED + "center x: " + centre.getX() + "\t x: " + x1 + " = " + (centre.getX() - x1) + "\t\t\t center y: " + centre.getY() + "\t y: " + y1 + " = " + (centre.getY() - y1) + "\t\t\t distance: " + dist);
+                }
 
                 if (minDistance == -1.0 || minDistance > dist) {
                     minDistance = dist;
@@ -157,6 +158,8 @@ public class Sonar extends Sensor {
      */
     @Override
     public void nextStep() {
+        clearHighlight();
+
         if (this.executingCommand && numSteps < this.range) {
             if (numSteps >= this.range) {
                 drawSonar(10);
@@ -193,6 +196,21 @@ public class Sonar extends Sensor {
                 scanMeasurements.add(new Measurement(distance, localPosition.getT()));  // ??????????????
             }
         }
+
+        if (!this.executingCommand) {
+            clearHighlight();
+        }
+    }
+
+    /**
+     * Restores the obstacles highlighted by the previous read.
+     */
+    private void clearHighlight() {
+        for (Obstacle obstacle : highlighted) {
+            obstacle.setOpaqueBackgroundColor(Color.magenta);
+        }
+
+        highlighted.clear();
     }
 
     /**
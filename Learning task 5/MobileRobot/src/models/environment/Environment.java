@@ -14,16 +14,32 @@ public class Environment {
     private final ArrayList<Obstacle> obstacles;
     private final MobileRobot robot;
     private final ArrayList<ActionListener> actionListenerList;
+    private volatile ObstacleIndex obstacleIndex;
 
     public Environment(OccupancyMap map) {
         this.obstacles = new ArrayList<>();
         robot = new MobileRobot("R1", 90, 200, 270, this, map);
         actionListenerList = new ArrayList<>();
+        obstacleIndex = new ObstacleIndex(obstacles);
     }
 
     public boolean loadMap(File mapFile) {
         obstacles.clear();
 
+        try {
+            if (!readMap(mapFile)) {
+                return false;
+            }
+        } finally {
+            obstacleIndex = new ObstacleIndex(obstacles);
+        }
+
+        processEvent(new ActionEvent(this, ActionEvent.ACTION_PERFORMED, null));
+
+        return true;
+    }
+
+    private boolean readMap(File mapFile) {
         try {
             FileInputStream inStream = new FileInputStream(mapFile);
             BufferedReader lineReader = new BufferedReader(new InputStreamReader(inStream));
@@ -53,10 +69,9 @@ public class Environment {
             inStream.close();
         } catch (IOException ioe) {
             ioe.printStackTrace();
+            return false;
         }
 
-        processEvent(new ActionEvent(this, ActionEvent.ACTION_PERFORMED, null));
-
         return true;
     }
 
@@ -80,6 +95,10 @@ public class Environment {
         return this.obstacles;
     }
 
+    public ObstacleIndex getObstacleIndex() {
+        return obstacleIndex;
+    }
+
     public void addActionListener(ActionListener listener) {
         actionListenerList.add(listener);
     }
@@ -0,0 +1,168 @@
+package models.environment;
+
+import java.awt.*;
+import java.awt.geom.Line2D;
+import java.awt.geom.Point2D;
+import java.util.ArrayList;
+import java.util.List;
+
+public class ObstacleIndex {
+
+    private static final int CELL_SIZE = 32;
+    private static final int MAX_CELLS = 1 << 20;
+    private final double[] edges;
+    private final int[][] cells;
+    private final double minX;
+    private final double minY;
+    private final double cellSize;
+    private final int columns;
+    private final int rows;
+
+    public ObstacleIndex(List<Obstacle> obstacles) {
+        ArrayList<double[]> found = new ArrayList<>();
+        double minX = Double.MAX_VALUE, minY = Double.MAX_VALUE;
+        double maxX = -Double.MAX_VALUE, maxY = -Double.MAX_VALUE;
+
+        for (Obstacle obstacle : obstacles) {
+            if (obstacle.getOpaque()) {
+                continue;
+            }
+
+            Polygon polygon = obstacle.getPolygon();
+
+            for (int i = 0; i < polygon.npoints; i++) {
+                int j = (i + 1) % polygon.npoints;
+                found.add(new double[]{polygon.xpoints[i], polygon.ypoints[i], polygon.xpoints[j], polygon.ypoints[j]});
+                minX = Math.min(minX, polygon.xpoints[i]);
+                minY = Math.min(minY, polygon.ypoints[i]);
+                maxX = Math.max(maxX, polygon.xpoints[i]);
+                maxY = Math.max(maxY, polygon.ypoints[i]);
+            }
+        }
+
+        edges = new double[found.size() * 4];
+
+        for (int i = 0; i < found.size(); i++) {
+            System.arraycopy(found.get(i), 0, edges, i * 4, 4);
+        }
+
+        if (found.isEmpty()) {
+            this.minX = this.minY = 0;
+            this.cellSize = CELL_SIZE;
+            columns = rows = 0;
+            cells = new int[0][];
+
+            return;
+        }
+
+        double size = CELL_SIZE;
+
+        while (((maxX - minX) / size + 1) * ((maxY - minY) / size + 1) > MAX_CELLS) {
+            size *= 2;
+        }
+
+        this.minX = minX;
+        this.minY = minY;
+        this.cellSize = size;
+        columns = (int) ((maxX - minX) / size) + 1;
+        rows = (int) ((maxY - minY) / size) + 1;
+
+        int[] counts = new int[columns * rows];
+        int[][] grid = null;
+
+        for (int pass = 0; pass < 2; pass++) {
+            for (int e = 0; e < found.size(); e++) {
+                int fromColumn = column(Math.min(edges[e * 4], edges[e * 4 + 2]));
+                int toColumn = column(Math.max(edges[e * 4], edges[e * 4 + 2]));
+                int fromRow = row(Math.min(edges[e * 4 + 1], edges[e * 4 + 3]));
+                int toRow = row(Math.max(edges[e * 4 + 1], edges[e * 4 + 3]));
+
+                for (int r = fromRow; r <= toRow; r++) {
+                    for (int c = fromColumn; c <= toColumn; c++) {
+                        if (pass == 0) {
+                            counts[r * columns + c]++;
+                        } else {
+                            grid[r * columns + c][--counts[r * columns + c]] = e;
+                        }
+                    }
+                }
+            }
+
+            if (pass == 0) {
+                grid = new int[columns * rows][];
+
+                for (int i = 0; i < grid.length; i++) {
+                    grid[i] = new int[counts[i]];
+                }
+            }
+        }
+
+        cells = grid;
+    }
+
+    public int getEdgeCount() {
+        return edges.length / 4;
+    }
+
+    public double nearestHit(Point2D centre, Point2D front) {
+        double minDistance = -1.0;
+
+        if (cells.length == 0) {
+            return minDistance;
+        }
+
+        Line2D.Double beam = new Line2D.Double(centre, front);
+        int fromColumn = Math.max(0, column(Math.min(centre.getX(), front.getX())));
+        int toColumn = Math.min(columns - 1, column(Math.max(centre.getX(), front.getX())));
+        int fromRow = Math.max(0, row(Math.min(centre.getY(), front.getY())));
+        int toRow = Math.min(rows - 1, row(Math.max(centre.getY(), front.getY())));
+
+        for (int r = fromRow; r <= toRow; r++) {
+            for (int c = fromColumn; c <= toColumn; c++) {
+                for (int e : cells[r * columns + c]) {
+                    double dist = distanceToEdge(beam, edges[e * 4], edges[e * 4 + 1], edges[e * 4 + 2], edges[e * 4 + 3]);
+
+                    if (dist > 0 && (minDistance == -1.0 || dist < minDistance)) {
+                        minDistance = dist;
+                    }
+                }
+            }
+        }
+
+        return minDistance;
+    }
+
+    public static double distanceToEdge(Line2D.Double beam, double x1, double y1, double x2, double y2) {
+        if (!beam.intersectsLine(x1, y1, x2, y2)) {
+            return -1.0;
+        }
+
+        double px, py;
+
+        if (beam.x1 == beam.x2) {
+            px = beam.x1;
+            py = (y2 - y1) / (x2 - x1) * (px - x1) + y1;
+        } else if (x1 == x2) {
+            px = x1;
+            py = (beam.y2 - beam.y1) / (beam.x2 - beam.x1) * (px - beam.x1) + beam.y1;
+        } else {
+            double m1 = (y2 - y1) / (x2 - x1);
+            double q1 = y1 - m1 * x1;
+            double m2 = (beam.y2 - beam.y1) / (beam.x2 - beam.x1);
+            double q2 = beam.y1 - m2 * beam.x1;
+            px = (q2 - q1) / (m1 - m2);
+            py = m1 * px + q1;
+        }
+
+        return Point2D.Double.distance(beam.x1, beam.y1, px, py);
+    }
+
+    private int column(double x) {
+        return (int) Math.floor((x - minX) / cellSize);
+    }
+
+    private int row(double y) {
+        return (int) Math.floor((y - minY) / cellSize);
+    }
+
+}
@@ -3,28 +3,34 @@ package models.robot;
 import models.device.*;
 import models.environment.Environment;
 import models.environment.Position;
+import models.simulation.ClockedPipe;
+import models.simulation.DeviceScheduler;
+import models.simulation.SimulationClock;
 import models.virtualmap.OccupancyMap;
+import utils.Debugger;
 
 import java.io.PrintWriter;
 import java.util.ArrayList;
-import java.util.concurrent.LinkedBlockingQueue;
-import java.util.concurrent.ThreadPoolExecutor;
-import java.util.concurrent.TimeUnit;
 
 public class MobileRobot {
 
-    public static int delay = 5;
+    public static final int DEFAULT_DELAY = 5;
     private final String name;
     private final Position position;
     private final Platform platform;
     private final ArrayList<Device> sensors;
     private final MobileRobotAI intelligence;
+    private final Debugger debugger;
+    private volatile int delay;
     private PrintWriter output;
-    private ThreadPoolExecutor executor;
+    private SimulationClock clock;
+    private boolean ownsClock;
 
     public MobileRobot(String name, double x, double y, double t, Environment environment, OccupancyMap map) {
         this.sensors = new ArrayList<>();
         this.name = name;
+        this.delay = DEFAULT_DELAY;
+        this.debugger = new Debugger(false);
         this.position = new Position(x, y, Math.toRadians(t));
         this.platform = new Platform("P1", this, environment);
         this.sensors.add(new Laser("L1", this, new Position(20.0, 0.0, 0.0), environment));
@@ -44,19 +50,56 @@ public class MobileRobot {
         }
     }
 
-    public void start() {
-        this.executor = new ThreadPoolExecutor(10, 100, 0L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<Runnable>());
-        this.executor.execute(platform);
+    public synchronized void start() {
+        SimulationClock clock = new SimulationClock(Long.MAX_VALUE, ticksPerSecond(delay));
+        start(clock);
+        this.ownsClock = true;
+        clock.start(DeviceScheduler.shared());
+    }
+
+    public synchronized void start(SimulationClock clock) {
+        this.clock = clock;
+        this.ownsClock = false;
+        clock.add(platform);
 
         for (Device sensor : sensors) {
-            this.executor.execute(sensor);
+            clock.add(sensor);
         }
 
-        this.executor.execute(this.intelligence);
+        this.intelligence.connect(DeviceScheduler.shared());
+        this.intelligence.start();
     }
 
-    public void quit() {
-        this.executor.shutdownNow();
+    public long runHeadless(long maxTicks) {
+        SimulationClock clock = new SimulationClock(maxTicks);
+        clock.add(platform);
+
+        for (Device sensor : sensors) {
+            clock.add(sensor);
+        }
+
+        this.intelligence.connect(new ClockedPipe(clock));
+        this.intelligence.run();
+
+        return clock.getTicks();
+    }
+
+    public synchronized void quit() {
+        this.intelligence.stop();
+
+        if (this.clock != null) {
+            if (this.ownsClock) {
+                this.clock.stop();
+            }
+
+            this.clock.remove(platform);
+
+            for (Device sensor : sensors) {
+                this.clock.remove(sensor);
+            }
+
+            this.clock = null;
+        }
     }
 
     public boolean sendCommand(String p_command) {
@@ -97,6 +140,22 @@ public class MobileRobot {
         }
     }
 
+    public int getDelay() {
+        return delay;
+    }
+
+    public synchronized void setDelay(int delay) {
+        this.delay = delay;
+
+        if (this.clock != null && this.ownsClock) {
+            this.clock.setTicksPerSecond(ticksPerSecond(delay));
+        }
+    }
+
+    public Debugger getDebugger() {
+        return debugger;
+    }
+
     public Platform getPlatform() {
         return platform;
     }
@@ -105,6 +164,10 @@ public class MobileRobot {
         return sensors;
     }
 
+    private static int ticksPerSecond(int delay) {
+        return Math.max(1, 1000 / Math.max(1, delay));
+    }
+
     private synchronized void writeOut(String data) {
         if (output != null) {
             output.println(data);
@@ -1,12 +1,15 @@
 package models.robot;
 
+import models.simulation.ClockedPipe;
 import models.virtualmap.OccupancyMap;
 import utils.ANSI;
 import utils.Debugger;
 
 import java.io.*;
+import java.util.ArrayDeque;
 import java.util.Arrays;
 import java.util.StringTokenizer;
+import java.util.concurrent.Executor;
 
 /**
  * Class representing a mobile robot ai.
@@ -70,6 +73,11 @@ public class MobileRobotAI implements Runnable {
      */
     private final MobileRobot mobileRobot;
 
+    /**
+     * The debugger.
+     */
+    private final Debugger debugger;
+
     /* Readers and writers. */
 
     /**
@@ -92,6 +100,18 @@ public class MobileRobotAI implements Runnable {
      */
     String result;
 
+    /* Steps. */
+
+    /**
+     * The steps still to take, in order.
+     */
+    private final ArrayDeque<Step> plan;
+
+    /**
+     * The step waiting for a reply.
+     */
+    private Step waiting;
+
     /* Positions and measures. */
 
     /**
@@ -124,7 +144,12 @@ public class MobileRobotAI implements Runnable {
     /**
      * The running.
      */
-    private boolean running;
+    private volatile boolean running;
+
+    /**
+     * The headless.
+     */
+    private boolean headless;
 
     /* Constructors */
 
@@ -137,10 +162,10 @@ public class MobileRobotAI implements Runnable {
      */
     public MobileRobotAI(MobileRobot mobileRobot, OccupancyMap occupancyMap) {
         // Debugging mode.
-        Debugger.debug = false;
+        this.debugger = mobileRobot.getDebugger();
 
         // Debugging.
-        Debugger.print("MobileRobotAI", "MobileRobotAI", "executing");
+        debugger.print("MobileRobotAI", "MobileRobotAI", "executing");
 
         // Initialize the accessories for the mobile robot ai.
         this.occupancyMap = occupancyMap;
@@ -161,6 +186,10 @@ public class MobileRobotAI implements Runnable {
         // Set the output of the mobile robot.
         mobileRobot.setOutput(output);
 
+        // Initialize the steps.
+        this.plan = new ArrayDeque<>();
+        this.waiting = null;
+
         // Initialize the positions and measures.
         this.position = new double[3];
         this.measures = new double[360];
@@ -170,66 +199,226 @@ public class MobileRobotAI implements Runnable {
 
         // Initialize the running.
         this.running = true;
+        this.headless = false;
     }
 
     /* Methods */
 
+    /* Simulation. */
+
+    /**
+     * Connects the mobile robot ai to a clocked pipe instead of the piped streams.
+     * Every read on the pipe advances the simulation clock until a reply arrives,
+     * so the ai and the devices can run on a single thread.
+     *
+     * @param pipe The clocked pipe.
+     */
+    public void connect(ClockedPipe pipe) {
+        // Replace the readers and writers.
+        this.input = new BufferedReader(pipe.getReader());
+        this.output = new PrintWriter(pipe.getWriter(), true);
+
+        // Set the output of the mobile robot.
+        mobileRobot.setOutput(output);
+
+        // Console output is skipped when running headless.
+        this.headless = true;
+    }
+
+    /**
+     * Connects the mobile robot ai to an executor instead of the piped streams.
+     * Every reply of the devices resumes the mobile robot ai as a task on the executor,
+     * so no thread is held while a command is being executed.
+     *
+     * @param executor The executor.
+     */
+    public void connect(Executor executor) {
+        // Replace the writer.
+        this.output = new PrintWriter(new ReplyWriter(executor), true);
+
+        // Set the output of the mobile robot.
+        mobileRobot.setOutput(output);
+    }
+
+    /**
+     * Stops the mobile robot ai after the current process.
+     */
+    public void stop() {
+        // Stop running.
+        this.running = false;
+    }
+
     /* Process. */
 
     /**
-     * Runs the mobile robot ai.
+     * Runs the mobile robot ai, reading every reply from the input.
      */
     public void run() {
         // Debugging.
-        Debugger.print("MobileRobotAI", "run", "executing");
+        debugger.print("MobileRobotAI", "run", "executing");
 
-        // Keeps running when running is set to true.
-        while (running) {
-            // Try.
-            try {
-                // Start processing.
-                process();
+        // Try.
+        try {
+            // Send the first command.
+            start();
 
-                // If the map is scanned, quit the mobile robot.
-                if (mapScanned()) {
-                    mobileRobot.quit();
+            // Keeps running when running is set to true.
+            while (running) {
+                // Read the reply.
+                String reply = input.readLine();
+
+                // If there is no reply, the devices are gone.
+                if (reply == null) {
+                    throw new EOFException("No more replies.");
                 }
-            // Catch the io exception.
-            } catch (IOException ioException) {
-                System.err.println("Mobile Robot AI: Execution stopped.");
-                running = false;
+
+                // Continue with the reply.
+                resume(reply);
             }
+        // Catch the io exception.
+        } catch (IOException ioException) {
+            System.err.println("Mobile Robot AI: Execution stopped.");
+            running = false;
         }
 
         // Debugging.
-        Debugger.print("MobileRobotAI", "run", "finished executing");
+        debugger.print("MobileRobotAI", "run", "finished executing");
+    }
+
+    /**
+     * Starts the mobile robot ai by planning the first process and sending its first command.
+     */
+    public synchronized void start() {
+        // Debugging.
+        debugger.print("MobileRobotAI", "start", "executing");
+
+        // Plan the first process and take the steps up to the first command.
+        process();
+        advance();
     }
 
     /**
-     * Go though the process.
+     * Resumes the mobile robot ai with the reply to the command it is waiting for.
      *
-     * @throws IOException
+     * @param reply The reply.
      */
-    private void process() throws IOException {
+    public synchronized void resume(String reply) {
         // Debugging.
-        Debugger.print("MobileRobotAI", "process", "executing");
+        debugger.print("MobileRobotAI", "resume", "executing");
+
+        // If no command is waiting, the reply is not for the mobile robot ai.
+        if (waiting == null) {
+            return;
+        }
+
+        // Set the result.
+        result = reply;
+
+        // Switch the waiting step to handle the reply.
+        switch (waiting.action) {
+            // Case position, parse the position.
+            case POSITION:
+                parsePosition(result, position);
+                break;
+            // Case laser, parse the measures and draw the laser scan.
+            case LASER:
+                parseMeasures(result, measures);
+                occupancyMap.drawLaserScan(position, measures);
+                break;
+            // Case sonar, parse the measures and draw the sonar scan.
+            case SONAR:
+                parseMeasures(result, measures);
+                occupancyMap.drawSonarScan(position, measures);
+                break;
+            // Default, the reply only confirms the command.
+            default:
+                break;
+        }
+
+        // Take the next steps.
+        waiting = null;
+        advance();
+    }
 
-        // Scan the area.
+    /**
+     * Takes the planned steps up to the next command.
+     * When every step is taken, the process is finished and the next one is planned.
+     */
+    private void advance() {
+        // Keeps taking steps when running is set to true.
+        while (running) {
+            // If the process is finished.
+            if (plan.isEmpty()) {
+                // If the map is scanned, quit the mobile robot.
+                if (mapScanned()) {
+                    mobileRobot.quit();
+
+                    return;
+                }
+
+                // Plan the next process.
+                process();
+            }
+
+            // The next step.
+            Step step = plan.poll();
+
+            // Switch the step to decide or to send a command.
+            switch (step.action) {
+                // Case scanned, update the start position.
+                case SCANNED:
+                    scanned();
+                    break;
+                // Case decide, decide where to go.
+                case DECIDE:
+                    decide();
+                    break;
+                // Case corner, decide how to finish the corner.
+                case CORNER:
+                    corner();
+                    break;
+                // Default, send the command and wait for its reply.
+                default:
+                    waiting = step;
+                    mobileRobot.sendCommand(step.command);
+
+                    return;
+            }
+        }
+    }
+
+    /**
+     * Plans the process: scan the area, then decide where to go.
+     */
+    private void process() {
+        // Debugging.
+        debugger.print("MobileRobotAI", "process", "executing");
+
+        // Scan the area and decide afterwards.
         scanArea();
+        plan.add(new Step(Action.DECIDE, null));
+    }
+
+    /**
+     * Decides where to go from the scanned area.
+     */
+    private void decide() {
+        // Debugging.
+        debugger.print("MobileRobotAI", "decide", "executing");
 
         // The coordinates of the mobile robot.
         int xCoordinate = (int) position[0] / occupancyMap.getCellDimension();
         int yCoordinate = (int) position[1] / occupancyMap.getCellDimension();
 
         // Debugging.
-        Debugger.print("MobileRobotAI", "process", "xCoordinate: " + xCoordinate);
-        Debugger.print("MobileRobotAI", "process", "yCoordinate: " + yCoordinate);
+        debugger.print("MobileRobotAI", "decide", "xCoordinate: " + xCoordinate);
+        debugger.print("MobileRobotAI", "decide", "yCoordinate: " + yCoordinate);
 
         // Search directions.
         int[] searchDirections = determineSearchDirection(FORWARD);
 
         // Debugging..
-        Debugger.print("MobileRobotAI", "process", "searchDirections: " + Arrays.toString(searchDirections));
+        debugger.print("MobileRobotAI", "decide", "searchDirections: " + Arrays.toString(searchDirections));
 
         // Search direction coordinates.
         int xSearchDirection = searchDirections[0];
@@ -286,15 +475,23 @@ public class MobileRobotAI implements Runnable {
      * Corner right.
      *
      * @param stepsBeforeCorner The steps before cornet.
-     * @throws IOException
      */
-    private void cornerRight(int stepsBeforeCorner) throws IOException {
+    private void cornerRight(int stepsBeforeCorner) {
         // Debugging.
-        Debugger.print("MobileRobotAI", "cornerRight", "executing");
+        debugger.print("MobileRobotAI", "cornerRight", "executing");
 
-        // Move forward and scan the area.
+        // Move forward, scan the area and finish the corner afterwards.
         moveForward(stepsBeforeCorner + 3);
         scanArea();
+        plan.add(new Step(Action.CORNER, null));
+    }
+
+    /**
+     * Finishes a corner to the right from the scanned area.
+     */
+    private void corner() {
+        // Debugging.
+        debugger.print("MobileRobotAI", "corner", "executing");
 
         // The coordinates of the mobile robot.
         int xCoordinate = (int) position[0] / occupancyMap.getCellDimension();
@@ -319,14 +516,14 @@ public class MobileRobotAI implements Runnable {
      */
     private boolean searchWallToTheRight(int xCoordinate, int yCoordinate) {
         // Debugging.
-        Debugger.print("MobileRobotAI", "searchWallToTheRight", "executing");
+        debugger.print("MobileRobotAI", "searchWallToTheRight", "executing");
 
         // If the right wall is found.
         boolean rightWallFound = true;
 
         // Debugging.
-        Debugger.print("MobileRobotAI", "searchWallToTheRight", "xCoordinate: " + xCoordinate);
-        Debugger.print("MobileRobotAI", "searchWallToTheRight", "yCoordinate: " + yCoordinate);
+        debugger.print("MobileRobotAI", "searchWallToTheRight", "xCoordinate: " + xCoordinate);
+        debugger.print("MobileRobotAI", "searchWallToTheRight", "yCoordinate: " + yCoordinate);
 
         // The search directions.
         int[] searchDirections = determineSearchDirection(RIGHT);
@@ -334,8 +531,8 @@ public class MobileRobotAI implements Runnable {
         int ySearchDirection = searchDirections[1];
 
         // Debugging.
-        Debugger.print("MobileRobotAI", "searchWallToTheRight", "xSearchDirection: " + xSearchDirection);
-        Debugger.print("MobileRobotAI", "searchWallToTheRight", "ySearchDirection: " + ySearchDirection);
+        debugger.print("MobileRobotAI", "searchWallToTheRight", "xSearchDirection: " + xSearchDirection);
+        debugger.print("MobileRobotAI", "searchWallToTheRight", "ySearchDirection: " + ySearchDirection);
 
         // The known map.
         char[][] knownMap = occupancyMap.getGrid();
@@ -372,7 +569,7 @@ public class MobileRobotAI implements Runnable {
         }
 
         // Debugging.
-        Debugger.print("MobileRobotAI", "searchWallToTheRight", "returns: " + rightWallFound);
+        debugger.print("MobileRobotAI", "searchWallToTheRight", "returns: " + rightWallFound);
 
         // Return if the right wall is found.
         return rightWallFound;
@@ -384,27 +581,24 @@ public class MobileRobotAI implements Runnable {
      * Moves the mobile robot forward.
      *
      * @param tiling The tiling.
-     * @throws IOException
      */
-    private void moveForward(int tiling) throws IOException {
+    private void moveForward(int tiling) {
         // Debugging.
-        Debugger.print("MobileRobotAI", "moveForward", "executing");
-        Debugger.print("MobileRobotAI", "moveForward", "tiling: " + tiling);
+        debugger.print("MobileRobotAI", "moveForward", "executing");
+        debugger.print("MobileRobotAI", "moveForward", "tiling: " + tiling);
 
         // Move the mobile robot forward to the given direction.
-        mobileRobot.sendCommand("P1.MOVEFW " + tiling * occupancyMap.getCellDimension());
-        result = input.readLine();
+        plan.add(new Step(Action.MOVE, "P1.MOVEFW " + tiling * occupancyMap.getCellDimension()));
     }
 
     /**
      * Rotates the mobile robot.
      *
      * @param direction The direction.
-     * @throws IOException
      */
-    private void rotate(String direction) throws IOException {
+    private void rotate(String direction) {
         // Debugging.
-        Debugger.print("MobileRobotAI", "rotate", "executing");
+        debugger.print("MobileRobotAI", "rotate", "executing");
 
         // The command.
         String command;
@@ -425,21 +619,18 @@ public class MobileRobotAI implements Runnable {
         }
 
         // Debugging.
-        Debugger.print("MobileRobotAI", "rotate", "rotating to the " + command.toLowerCase());
+        debugger.print("MobileRobotAI", "rotate", "rotating to the " + command.toLowerCase());
 
         // Rotate the mobile robot to the given direction.
-        mobileRobot.sendCommand("P1.ROTATE" + command.toUpperCase() + " 90");
-        result = input.readLine();
+        plan.add(new Step(Action.ROTATE, "P1.ROTATE" + command.toUpperCase() + " 90"));
     }
 
     /**
      * Scans the area.
-     *
-     * @throws IOException
      */
-    private void scanArea() throws IOException {
+    private void scanArea() {
         // Debugging.
-        Debugger.print("MobileRobotAI", "scanArea", "executing");
+        debugger.print("MobileRobotAI", "scanArea", "executing");
 
         // Get the current position and scan with the laser.
         currentPosition();
@@ -449,6 +640,14 @@ public class MobileRobotAI implements Runnable {
         currentPosition();
         scan("Sonar");
 
+        // Update the start position afterwards.
+        plan.add(new Step(Action.SCANNED, null));
+    }
+
+    /**
+     * Updates the start position after the area is scanned.
+     */
+    private void scanned() {
         // If the x position not equals the start x coordinate and the y coordinate not equals the start y coordinate, set the first position to false.
         if (position[0] != startX && position[1] != startY) {
             firstPosition = false;
@@ -465,11 +664,10 @@ public class MobileRobotAI implements Runnable {
      * Scans.
      *
      * @param with The with.
-     * @throws IOException
      */
-    private void scan(String with) throws IOException {
+    private void scan(String with) {
         // Debugging.
-        Debugger.print("MobileRobotAI", "scan", "executing");
+        debugger.print("MobileRobotAI", "scan", "executing");
 
         // The command.
         String command;
@@ -490,35 +688,21 @@ public class MobileRobotAI implements Runnable {
         }
 
         // Debugging.
-        Debugger.print("MobileRobotAI", "scan", "with: " + with);
-
-        // Command the mobile robot to scan.
-        mobileRobot.sendCommand(command + "1.SCAN");
-        result = input.readLine();
-        parseMeasures(result, measures);
-
-        // If the command equals laser, draw the laser scan.
-        if (command.equals("L")) {
-            occupancyMap.drawLaserScan(position, measures);
-        // Else if the command equals sonar, draw the sonar scan.
-        } else if (command.equals("S")) {
-            occupancyMap.drawSonarScan(position, measures);
-        }
+        debugger.print("MobileRobotAI", "scan", "with: " + with);
+
+        // Command the mobile robot to scan, the reply is drawn with the laser or the sonar.
+        plan.add(new Step(command.equals("L") ? Action.LASER : Action.SONAR, command + "1.SCAN"));
     }
 
     /**
      * The current position of the mobile robot.
-     *
-     * @throws IOException
      */
-    private void currentPosition() throws IOException {
+    private void currentPosition() {
         // Debugging.
-        Debugger.print("MobileRobotAI", "currentPosition", "executing");
+        debugger.print("MobileRobotAI", "currentPosition", "executing");
 
-        // Get the current position of the mobile robot.
-        mobileRobot.sendCommand("R1.GETPOS");
-        result = input.readLine();
-        parsePosition(result, position);
+        // Get the current position of the mobile robot, the reply is parsed into the position.
+        plan.add(new Step(Action.POSITION, "R1.GETPOS"));
     }
 
     /* Helpers */
@@ -531,7 +715,7 @@ public class MobileRobotAI implements Runnable {
      */
     private int[] determineSearchDirection(int lookingDirection) {
         // Debugging.
-        Debugger.print("MobileRobotAI", "determineSearchDirection", "executing");
+        debugger.print("MobileRobotAI", "determineSearchDirection", "executing");
 
         // The current direction.
         int currentDirection = determineClosestDirection(position[2]);
@@ -575,8 +759,8 @@ public class MobileRobotAI implements Runnable {
         }
 
         // Debugging.
-        Debugger.print("MobileRobotAI", "determineSearchDirection", "xSearchDirection: " + searchDirections[0]);
-        Debugger.print("MobileRobotAI", "determineSearchDirection", "ySearchDirection: " + searchDirections[1]);
+        debugger.print("MobileRobotAI", "determineSearchDirection", "xSearchDirection: " + searchDirections[0]);
+        debugger.print("MobileRobotAI", "determineSearchDirection", "ySearchDirection: " + searchDirections[1]);
 
         // Return the search directions.
         return searchDirections;
@@ -590,7 +774,7 @@ public class MobileRobotAI implements Runnable {
      */
     private int determineClosestDirection(double numberToRound) {
         // Debugging.
-        Debugger.print("MobileRobotAI", "determineClosestDirection", "executing");
+        debugger.print("MobileRobotAI", "determineClosestDirection", "executing");
 
         // The closest direction.
         int closestDirection;
@@ -619,7 +803,7 @@ public class MobileRobotAI implements Runnable {
         }
 
         // Debugging.
-        Debugger.print("MobileRobotAI", "determineClosestDirection", "returns: " + closestDirection);
+        debugger.print("MobileRobotAI", "determineClosestDirection", "returns: " + closestDirection);
 
         // Return the closest direction.
         return closestDirection;
@@ -632,7 +816,7 @@ public class MobileRobotAI implements Runnable {
      */
     private boolean mapScanned() {
         // Debugging.
-        Debugger.print("MobileRobotAI", "mapScanned", "executing");
+        debugger.print("MobileRobotAI", "mapScanned", "executing");
 
         // If the map is scanned.
         boolean mapScanned = false;
@@ -713,7 +897,7 @@ public class MobileRobotAI implements Runnable {
      */
     private int[] searchAdjacentWall(int xCoordinate, int yCoordinate, int previousXCoordinate, int previousYCoordinate) {
         // Debugging.
-        Debugger.print("MobileRobotAI", "searchAdjacentWall", "executing");
+        debugger.print("MobileRobotAI", "searchAdjacentWall", "executing");
 
         // The adjacent wall.
         int[] adjacentWall = new int[2];
@@ -756,7 +940,7 @@ public class MobileRobotAI implements Runnable {
      */
     private void parsePosition(String value, double position[]) {
         // Debugging.
-        Debugger.print("MobileRobotAI", "parsePosition", "executing");
+        debugger.print("MobileRobotAI", "parsePosition", "executing");
 
         // The index init and index end.
         int indexInit;
@@ -791,7 +975,7 @@ public class MobileRobotAI implements Runnable {
      */
     private void parseMeasures(String value, double measures[]) {
         // Debugging.
-        Debugger.print("MobileRobotAI", "parseMeasures", "executing");
+        debugger.print("MobileRobotAI", "parseMeasures", "executing");
 
         // Loop while i is lesser than 360, set the measures to 100.0.
         for (int i = 0; i < 360; i++) {
@@ -801,7 +985,9 @@ public class MobileRobotAI implements Runnable {
         // If the value length is greater or equals 5.
         if (value.length() >= 5) {
             // Print the measurements.
-            System.out.println(ANSI.ANSI_MAGENTA + "Measurements:");
+            if (!headless) {
+                System.out.println(ANSI.ANSI_MAGENTA + "Measurements:");
+            }
 
             // Set the value and the tokenizer.
             value = value.substring(5);
@@ -826,9 +1012,124 @@ public class MobileRobotAI implements Runnable {
                 measures[direction] = distance;
 
                 // Print the measurements.
-                System.out.println("direction: " + direction + "\t distance: " + distance);
+                if (!headless) {
+                    System.out.println("direction: " + direction + "\t distance: " + distance);
+                }
+            }
+        }
+    }
+
+    /**
+     * The actions of a step.
+     */
+    private enum Action {
+        POSITION, LASER, SONAR, MOVE, ROTATE, SCANNED, DECIDE, CORNER
+    }
+
+    /**
+     * A step of the mobile robot ai: a command with a reply, or a decision without a command.
+     */
+    private static class Step {
+
+        /**
+         * The action.
+         */
+        private final Action action;
+
+        /**
+         * The command, null for a decision.
+         */
+        private final String command;
+
+        /**
+         * The constructor of the step.
+         *
+         * @param action  The action.
+         * @param command The command.
+         */
+        private Step(Action action, String command) {
+            this.action = action;
+            this.command = command;
+        }
+
+    }
+
+    /**
+     * A writer that resumes the mobile robot ai on an executor for every line written to it.
+     */
+    private class ReplyWriter extends Writer {
+
+        /**
+         * The executor.
+         */
+        private final Executor executor;
+
+        /**
+         * The line being written.
+         */
+        private final StringBuilder line;
+
+        /**
+         * The constructor of the reply writer.
+         *
+         * @param executor The executor.
+         */
+        private ReplyWriter(Executor executor) {
+            this.executor = executor;
+            this.line = new StringBuilder();
+        }
+
+        /**
+         * Writes the characters and resumes the mobile robot ai for every finished line.
+         *
+         * @param characters The characters.
+         * @param offset     The offset.
+         * @param length     The length.
+         */
+        @Override
+        public synchronized void write(char[] characters, int offset, int length) {
+            // For each character.
+            for (int i = offset; i < offset + length; i++) {
+                // If the character ends the line, resume with the line.
+                if (characters[i] == '\n') {
+                    final String reply = line.toString();
+                    line.setLength(0);
+
+                    executor.execute(new Runnable() {
+                        @Override
+                        public void run() {
+                            // Try.
+                            try {
+                                resume(reply);
+                            // Catch the runtime exception.
+                            } catch (RuntimeException runtimeException) {
+                                System.err.println("Mobile Robot AI: Execution stopped.");
+                                runtimeException.printStackTrace();
+                                running = false;
+                            }
+                        }
+                    });
+                // Else if the character is not a carriage return, add it to the line.
+                } else if (characters[i] != '\r') {
+                    line.append(characters[i]);
+                }
             }
         }
+
+        /**
+         * Flushes the writer, every finished line is already resumed.
+         */
+        @Override
+        public void flush() {
+        }
+
+        /**
+         * Closes the writer.
+         */
+        @Override
+        public void close() {
+        }
+
     }
 
 }
@@ -0,0 +1,135 @@
+package models.simulation;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+public class BatchSimulation {
+
+    private final List<File> mapFiles;
+    private final int threads;
+    private final long maxTicks;
+
+    public BatchSimulation(List<File> mapFiles, int threads, long maxTicks) {
+        this.mapFiles = mapFiles;
+        this.threads = threads;
+        this.maxTicks = maxTicks;
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        System.setProperty("java.awt.headless", "true");
+
+        List<File> mapFiles = new ArrayList<>();
+        String output = null;
+        int threads = Runtime.getRuntime().availableProcessors();
+        long maxTicks = HeadlessSimulation.DEFAULT_MAX_TICKS;
+
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("-o") && i + 1 < args.length) {
+                output = args[++i];
+            } else if (args[i].equals("-t") && i + 1 < args.length) {
+                threads = Integer.parseInt(args[++i]);
+            } else if (args[i].equals("-m") && i + 1 < args.length) {
+                maxTicks = Long.parseLong(args[++i]);
+            } else {
+                addMaps(new File(args[i]), mapFiles);
+            }
+        }
+
+        if (mapFiles.isEmpty()) {
+            System.err.println("Usage: BatchSimulation [-o results.csv] [-t threads] [-m maxTicks] maps...");
+            System.exit(1);
+        }
+
+        PrintWriter out = new PrintWriter(output == null ? new OutputStreamWriter(System.out) : new FileWriter(output));
+
+        try {
+            new BatchSimulation(mapFiles, threads, maxTicks).run(out);
+        } finally {
+            out.close();
+        }
+    }
+
+    public List<HeadlessSimulation> run(PrintWriter out) throws InterruptedException {
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, threads));
+        List<Future<HeadlessSimulation>> futures = new ArrayList<>();
+        List<HeadlessSimulation> results = new ArrayList<>();
+
+        for (File mapFile : mapFiles) {
+            futures.add(executor.submit(new Run(new HeadlessSimulation(mapFile, maxTicks))));
+        }
+
+        executor.shutdown();
+        out.println("map,status,ticks,limit_reached,coverage,time_ms,message");
+
+        for (int i = 0; i < futures.size(); i++) {
+            try {
+                HeadlessSimulation simulation = futures.get(i).get();
+                results.add(simulation);
+                out.println(String.format(Locale.ROOT, "%s,ok,%d,%b,%.4f,%.3f,",
+                        quote(simulation.getMapFile().getPath()), simulation.getTicks(),
+                        simulation.isTickLimitReached(), simulation.getCoverage(), simulation.getNanos() / 1e6));
+            } catch (ExecutionException e) {
+                System.err.println("Simulation of " + mapFiles.get(i) + " failed: " + e.getCause());
+                out.println(quote(mapFiles.get(i).getPath()) + ",error,,,,," + quote(String.valueOf(e.getCause())));
+            }
+
+            out.flush();
+        }
+
+        return results;
+    }
+
+    private static String quote(String field) {
+        return '"' + field.replace("\"", "\"\"") + '"';
+    }
+
+    private static void addMaps(File file, List<File> mapFiles) {
+        if (!file.isDirectory()) {
+            mapFiles.add(file);
+            return;
+        }
+
+        File[] files = file.listFiles();
+
+        if (files == null) {
+            return;
+        }
+
+        Arrays.sort(files);
+
+        for (File child : files) {
+            if (child.isFile() && child.getName().toLowerCase(Locale.ROOT).endsWith(".xml")) {
+                mapFiles.add(child);
+            }
+        }
+    }
+
+    private static class Run implements Callable<HeadlessSimulation> {
+
+        private final HeadlessSimulation simulation;
+
+        Run(HeadlessSimulation simulation) {
+            this.simulation = simulation;
+        }
+
+        public HeadlessSimulation call() throws IOException {
+            simulation.run();
+
+            return simulation;
+        }
+
+    }
+
+}
@@ -0,0 +1,77 @@
+package models.simulation;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+
+public class ClockedPipe {
+
+    private final SimulationClock clock;
+    private final StringBuilder buffer;
+    private final Reader reader;
+    private final Writer writer;
+
+    public ClockedPipe(SimulationClock clock) {
+        this.clock = clock;
+        this.buffer = new StringBuilder();
+        this.reader = new ClockedReader();
+        this.writer = new BufferWriter();
+    }
+
+    public Reader getReader() {
+        return reader;
+    }
+
+    public Writer getWriter() {
+        return writer;
+    }
+
+    private class ClockedReader extends Reader {
+
+        @Override
+        public int read(char[] cbuf, int off, int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+
+            while (buffer.length() == 0) {
+                if (clock.getTicks() >= clock.getMaxTicks()) {
+                    throw new IOException("Simulation stopped after " + clock.getTicks() + " ticks");
+                }
+
+                if (!clock.tick() && buffer.length() == 0) {
+                    throw new IOException("Simulation stalled: no device is busy and no reply is pending");
+                }
+            }
+
+            int count = Math.min(len, buffer.length());
+            buffer.getChars(0, count, cbuf, off);
+            buffer.delete(0, count);
+
+            return count;
+        }
+
+        @Override
+        public void close() {
+        }
+
+    }
+
+    private class BufferWriter extends Writer {
+
+        @Override
+        public void write(char[] cbuf, int off, int len) {
+            buffer.append(cbuf, off, len);
+        }
+
+        @Override
+        public void flush() {
+        }
+
+        @Override
+        public void close() {
+        }
+
+    }
+
+}
@@ -0,0 +1,39 @@
+package models.simulation;
+
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class DeviceScheduler {
+
+    private static final ScheduledExecutorService SHARED = create(Runtime.getRuntime().availableProcessors());
+
+    private DeviceScheduler() {
+    }
+
+    public static ScheduledExecutorService shared() {
+        return SHARED;
+    }
+
+    public static ScheduledExecutorService create(int threads) {
+        ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(Math.max(1, threads), new TickThreadFactory());
+        executor.setRemoveOnCancelPolicy(true);
+
+        return executor;
+    }
+
+    private static class TickThreadFactory implements ThreadFactory {
+
+        private final AtomicInteger count = new AtomicInteger();
+
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "device-tick-" + count.incrementAndGet());
+            thread.setDaemon(true);
+
+            return thread;
+        }
+
+    }
+
+}
@@ -0,0 +1,77 @@
+package models.simulation;
+
+import models.environment.Environment;
+import models.virtualmap.OccupancyMap;
+import utils.ANSI;
+
+import java.io.File;
+import java.io.IOException;
+
+public class HeadlessSimulation {
+
+    public static final long DEFAULT_MAX_TICKS = 1000000;
+    private final File mapFile;
+    private final long maxTicks;
+    private OccupancyMap map;
+    private long ticks;
+    private long nanos;
+
+    public HeadlessSimulation(File mapFile, long maxTicks) {
+        this.mapFile = mapFile;
+        this.maxTicks = maxTicks;
+    }
+
+    public static void main(String[] args) throws IOException {
+        System.setProperty("java.awt.headless", "true");
+
+        if (args.length < 1) {
+            System.err.println("Usage: HeadlessSimulation map.xml [maxTicks]");
+            System.exit(1);
+        }
+
+        long maxTicks = args.length > 1 ? Long.parseLong(args[1]) : DEFAULT_MAX_TICKS;
+        HeadlessSimulation simulation = new HeadlessSimulation(new File(args[0]), maxTicks);
+        simulation.run();
+        System.out.println(ANSI.ANSI_BLUE + simulation);
+    }
+
+    public void run() throws IOException {
+        map = new OccupancyMap();
+        Environment environment = new Environment(map);
+        map.setEnvironment(environment);
+
+        if (!environment.loadMap(mapFile)) {
+            throw new IOException("Could not load map " + mapFile);
+        }
+
+        long start = System.nanoTime();
+        ticks = environment.getRobot().runHeadless(maxTicks);
+        nanos = System.nanoTime() - start;
+    }
+
+    public File getMapFile() {
+        return mapFile;
+    }
+
+    public long getTicks() {
+        return ticks;
+    }
+
+    public long getNanos() {
+        return nanos;
+    }
+
+    public boolean isTickLimitReached() {
+        return ticks >= maxTicks;
+    }
+
+    public double getCoverage() {
+        return map == null ? 0 : map.getCoverage();
+    }
+
+    public String toString() {
+        return String.format("%s: %d ticks%s, %.1f ms, %.1f%% of the map explored",
+                mapFile.getName(), ticks, isTickLimitReached() ? " (limit reached)" : "", nanos / 1e6, getCoverage() * 100);
+    }
+
+}
@@ -0,0 +1,148 @@
+package models.simulation;
+
+import models.device.Device;
+
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+public class SimulationClock implements Runnable {
+
+    private final CopyOnWriteArrayList<Device> devices;
+    private final long maxTicks;
+    private volatile long ticks;
+    private volatile int ticksPerSecond;
+    private volatile boolean running;
+    private boolean parked;
+    private ScheduledExecutorService scheduler;
+    private long deadline;
+
+    public SimulationClock(long maxTicks) {
+        this(maxTicks, 0);
+    }
+
+    public SimulationClock(long maxTicks, int ticksPerSecond) {
+        this.devices = new CopyOnWriteArrayList<>();
+        this.maxTicks = maxTicks;
+        this.ticksPerSecond = ticksPerSecond;
+        this.ticks = 0;
+        this.running = false;
+    }
+
+    public void add(Device device) {
+        devices.add(device);
+        device.setClock(this);
+    }
+
+    public void remove(Device device) {
+        devices.remove(device);
+        device.setClock(null);
+    }
+
+    public synchronized boolean tick() {
+        boolean busy = false;
+
+        for (Device device : devices) {
+            if (!device.isIdle()) {
+                device.tick();
+                busy = true;
+            }
+        }
+
+        if (busy) {
+            ticks++;
+        }
+
+        return busy;
+    }
+
+    public void start(ScheduledExecutorService scheduler) {
+        if (ticksPerSecond <= 0) {
+            throw new IllegalStateException("A clock without a tick rate can only be ticked by hand");
+        }
+
+        synchronized (this) {
+            this.scheduler = scheduler;
+            this.running = true;
+            this.parked = false;
+            this.deadline = System.nanoTime();
+        }
+
+        scheduler.execute(this);
+    }
+
+    public synchronized void wake() {
+        if (running && parked) {
+            parked = false;
+            deadline = System.nanoTime();
+            scheduler.execute(this);
+        }
+    }
+
+    public void stop() {
+        this.running = false;
+    }
+
+    public void run() {
+        if (!running) {
+            return;
+        }
+
+        boolean busy = false;
+
+        try {
+            if (ticks < maxTicks) {
+                busy = tick();
+            }
+        } catch (RuntimeException e) {
+            e.printStackTrace();
+        }
+
+        synchronized (this) {
+            if (ticks >= maxTicks || !busy && isIdle()) {
+                parked = true;
+
+                return;
+            }
+
+            long now = System.nanoTime();
+            deadline = Math.max(deadline + TimeUnit.SECONDS.toNanos(1) / Math.max(1, ticksPerSecond), now);
+            scheduler.schedule(this, deadline - now, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private boolean isIdle() {
+        for (Device device : devices) {
+            if (!device.isIdle()) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    public boolean isRunning() {
+        return running;
+    }
+
+    public boolean isHeadless() {
+        return ticksPerSecond == 0;
+    }
+
+    public int getTicksPerSecond() {
+        return ticksPerSecond;
+    }
+
+    public void setTicksPerSecond(int ticksPerSecond) {
+        this.ticksPerSecond = ticksPerSecond;
+    }
+
+    public long getTicks() {
+        return ticks;
+    }
+
+    public long getMaxTicks() {
+        return maxTicks;
+    }
+
+}
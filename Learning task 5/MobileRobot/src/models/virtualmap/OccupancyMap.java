@@ -136,6 +136,20 @@ public class OccupancyMap {
         return grid;
     }
 
+    public double getCoverage() {
+        int known = 0;
+
+        for (char[] column : grid) {
+            for (char cell : column) {
+                if (cell != UNKNOWN) {
+                    known++;
+                }
+            }
+        }
+
+        return (double) known / (grid.length * grid[0].length);
+    }
+
     public char getUnknown() {
         return UNKNOWN;
     }
@@ -12,7 +12,35 @@ public class Debugger {
     /**
      * The debug.
      */
-    public static boolean debug = false;
+    private volatile boolean debug;
+
+    /**
+     * Debugger constructor.
+     * Creates a new debugger, so every mobile robot can be debugged on its own.
+     *
+     * @param debug The debug.
+     */
+    public Debugger(boolean debug) {
+        this.debug = debug;
+    }
+
+    /**
+     * Gets the debug.
+     *
+     * @return The debug.
+     */
+    public boolean isDebug() {
+        return debug;
+    }
+
+    /**
+     * Sets the debug.
+     *
+     * @param debug The debug.
+     */
+    public void setDebug(boolean debug) {
+        this.debug = debug;
+    }
 
     /**
      * Prints.
@@ -21,7 +49,7 @@ public class Debugger {
      * @param methodName  The method name.
      * @param description The description.
      */
-    public static void print(String className, String methodName, String description) {
+    public void print(String className, String methodName, String description) {
         if (debug) {
             System.out.println(ANSI.ANSI_CYAN + className + " > " + ANSI.ANSI_BLUE + methodName + " > " + ANSI.ANSI_WHITE + description);
         }